@@ -6,8 +6,9 @@
  * ║                                                                  ║
  * ║  BUILD:  javac CatLauncher.java                                  ║
  * ║  RUN:    java CatLauncher                                        ║
- * ║  JAR:    jar cfe CatLauncher.jar CatLauncher CatLauncher*.class ║
- * ║  Requires: Java 8+   No external dependencies.                   ║
+ * ║  JAR:  jar cfe CatLauncher.jar CatLauncherCli CatLauncher*.class ║
+ * ║  CLI:    java -jar CatLauncher.jar launch 1.20.4 (no args: GUI)  ║
+ * ║  Requires: Java 11+  No external dependencies.                   ║
  * ╚═══════════════════════════════════════════════════════════════════╝
  */
 
@@ -18,14 +19,20 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.net.*;
+import java.net.http.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
-import java.util.regex.*;
 import java.util.zip.*;
 
 public class CatLauncher extends JFrame {
@@ -48,18 +55,17 @@ public class CatLauncher extends JFrame {
     static final Color C_BORDER    = new Color(45, 45, 58);
     static final Color C_CONSOLE   = new Color(10, 10, 14);
 
-    static final String APP  = "CatLauncher";
-    static final String VER  = "1.1.0";
-    static final String MANIFEST_URL =
-        "https://piston-meta.mojang.com/mc/game/version_manifest_v2.json";
-
-    static Path ROOT, VER_DIR, LIB_DIR, ASS_DIR, NAT_DIR, PROF_FILE;
+    static final String APP = CatLauncherEngine.APP;
+    static final String VER = CatLauncherEngine.VER;
 
     // State
-    JTextField     tfUser, tfRam, tfJava;
+    JTextField     tfUser, tfRam, tfJava, tfSearch, tfMirror;
     DarkDropdown   ddType, ddVersion;
-    JTextArea      taLog;
-    JButton        btnLaunch;
+    final LogBuffer logBuf = new LogBuffer(CONSOLE_LINES);
+    ConsoleView    console;
+    JButton        btnLaunch, btnShare;
+    /** This install shared on the LAN; null while not sharing. EDT only. */
+    CatLauncherEngine.MirrorServer sharing;
 
     JProgressBar   progBar;
     JLabel         lblStatus, lblVerCount;
@@ -68,14 +74,24 @@ public class CatLauncher extends JFrame {
     String         curTab = "play";
     volatile boolean launching = false;
 
-    // [id, type, url]
-    final List<String[]> versions = Collections.synchronizedList(new ArrayList<>());
+    final CatLauncherEngine engine = new CatLauncherEngine(new CatLauncherEngine.Listener() {
+        public void line(String text) {
+            pendingLog.add(text);
+            pendingCount.incrementAndGet();
+            if (logDrainScheduled.compareAndSet(false, true)) logTimer.restart();
+            System.out.println(text);
+        }
+        public void status(String text)  { CatLauncher.this.status(text); }
+        public void progress(int pct)    { prog(pct); }
+        public boolean behind()          { return pendingCount.get() > CONSOLE_LINES; }
+    });
 
     // ═══════════════════════════════════════════════════════════════════
     //  MAIN
     // ═══════════════════════════════════════════════════════════════════
     public static void main(String[] args) {
-        initDirs();
+        if (args.length > 0) System.exit(CatLauncherCli.run(args));   // a command: never touch AWT
+        CatLauncherEngine.initDirs();
         nukeWhiteDefaults();
         SwingUtilities.invokeLater(() -> {
             CatLauncher app = new CatLauncher();
@@ -121,40 +137,29 @@ public class CatLauncher extends JFrame {
         for (Object[] d : defs) UIManager.put(d[0], d[1]);
     }
 
-    static void initDirs() {
-        String os = System.getProperty("os.name","").toLowerCase();
-        Path home;
-        if (os.contains("win"))      home = Paths.get(System.getenv("APPDATA"),".catlauncher");
-        else if (os.contains("mac")) home = Paths.get(System.getProperty("user.home"),
-                                              "Library","Application Support","catlauncher");
-        else                         home = Paths.get(System.getProperty("user.home"),".catlauncher");
-        ROOT      = home;
-        VER_DIR   = home.resolve("versions");
-        LIB_DIR   = home.resolve("libraries");
-        ASS_DIR   = home.resolve("assets");
-        NAT_DIR   = home.resolve("natives");
-        PROF_FILE = home.resolve("profiles.properties");
-        try {
-            Files.createDirectories(VER_DIR);
-            Files.createDirectories(LIB_DIR);
-            Files.createDirectories(ASS_DIR.resolve("indexes"));
-            Files.createDirectories(ASS_DIR.resolve("objects"));
-            Files.createDirectories(NAT_DIR);
-        } catch (IOException e) { System.err.println(e); }
-    }
-
     // ═══════════════════════════════════════════════════════════════════
     //  DARK DROPDOWN — replaces JComboBox entirely (no white possible)
     // ═══════════════════════════════════════════════════════════════════
     class DarkDropdown extends JPanel {
-        private final List<String> items = new ArrayList<>();
+        static final int ROW_H = 24;
+
+        /** Shared, never copied: callers hand in immutable lists (e.g. manifest snapshots). */
+        private List<String> items = Collections.emptyList();
         private int selectedIdx = -1;
         private final JLabel display;
         private final JLabel arrow;
         private JPopupMenu popup;
         private JScrollPane popupScroll;
+        private JList<String> list;
+        private int hoverIdx = -1;
         private final List<Runnable> listeners = new ArrayList<>();
 
+        /** View of {@link #items} for the popup list; only visible rows are ever asked for. */
+        private final AbstractListModel<String> model = new AbstractListModel<String>() {
+            public int getSize()              { return items.size(); }
+            public String getElementAt(int i) { return items.get(i); }
+        };
+
         DarkDropdown() {
             setLayout(new BorderLayout());
             setBackground(C_FIELD);
@@ -192,8 +197,8 @@ public class CatLauncher extends JFrame {
         }
 
         void setItems(List<String> newItems) {
-            items.clear();
-            items.addAll(newItems);
+            items = newItems;
+            fireModelChanged();
             if (!items.isEmpty()) {
                 selectedIdx = 0;
                 display.setText(items.get(0));
@@ -203,7 +208,13 @@ public class CatLauncher extends JFrame {
                 display.setText("(none)");
                 display.setForeground(C_DIM);
             }
-            popup = null; // rebuild next time
+        }
+
+        private void fireModelChanged() {
+            // AbstractListModel's fire methods are protected; go through the ListDataListeners
+            javax.swing.event.ListDataEvent ev = new javax.swing.event.ListDataEvent(
+                model, javax.swing.event.ListDataEvent.CONTENTS_CHANGED, 0, Integer.MAX_VALUE);
+            for (javax.swing.event.ListDataListener l : model.getListDataListeners()) l.contentsChanged(ev);
         }
 
         void setSelected(String val) {
@@ -226,78 +237,191 @@ public class CatLauncher extends JFrame {
 
         private void showPopup() {
             if (items.isEmpty()) return;
-            buildPopup();
+            if (popup == null) buildPopup();
+            int visibleRows = Math.min(items.size(), 18);
+            int popH = visibleRows * ROW_H + 4;
+            popupScroll.setPreferredSize(new Dimension(getWidth() - 2, popH));
+            popup.setPopupSize(getWidth(), popH + 2);
+            hoverIdx = -1;
+            list.setSelectedIndex(selectedIdx);
+            if (selectedIdx >= 0) list.ensureIndexIsVisible(selectedIdx);
             popup.show(this, 0, getHeight());
         }
 
+        /**
+         * Built once: a JList over the shared model with a fixed row height
+         * and a single renderer, so opening costs the same for 5 items or
+         * the full manifest — only the visible rows are laid out and painted.
+         */
         private void buildPopup() {
-            // Build a JPanel list inside a JScrollPane inside a JPopupMenu
             popup = new JPopupMenu();
             popup.setBackground(C_POPUP);
             popup.setBorder(BorderFactory.createLineBorder(C_BORDER));
             popup.setOpaque(true);
 
-            JPanel list = new JPanel();
-            list.setLayout(new BoxLayout(list, BoxLayout.Y_AXIS));
+            list = new JList<>(model);
+            list.setFixedCellHeight(ROW_H);
+            list.setFixedCellWidth(1);         // width follows the viewport; never measure every row
             list.setBackground(C_POPUP);
-            list.setOpaque(true);
-
-            for (int i = 0; i < items.size(); i++) {
-                final int idx = i;
-                final String text = items.get(i);
-                JPanel row = new JPanel(new BorderLayout()) {
-                    @Override
-                    protected void paintComponent(Graphics g) {
-                        g.setColor(getBackground());
-                        g.fillRect(0, 0, getWidth(), getHeight());
-                        super.paintComponent(g);
-                    }
-                };
-                row.setBackground(idx == selectedIdx ? C_ACCENT : C_POPUP);
-                row.setOpaque(true);
-                row.setPreferredSize(new Dimension(0, 24));
-                row.setMaximumSize(new Dimension(Integer.MAX_VALUE, 24));
-
-                JLabel lbl = new JLabel(text);
-                lbl.setForeground(C_WHITE);
-                lbl.setFont(new Font("SansSerif", Font.PLAIN, 12));
-                lbl.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
-                lbl.setOpaque(false);
-                row.add(lbl);
-
-                row.addMouseListener(new MouseAdapter() {
-                    public void mouseEntered(MouseEvent e) {
-                        row.setBackground(C_ACCENT);
-                    }
-                    public void mouseExited(MouseEvent e) {
-                        row.setBackground(idx == selectedIdx ? C_ACC_HI : C_POPUP);
-                    }
-                    public void mousePressed(MouseEvent e) {
-                        selectedIdx = idx;
-                        display.setText(text);
-                        display.setForeground(C_WHITE);
-                        popup.setVisible(false);
-                        for (Runnable r : listeners) r.run();
-                    }
-                });
-                list.add(row);
-            }
+            list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            JLabel cell = new JLabel();
+            cell.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            cell.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
+            cell.setForeground(C_WHITE);
+            cell.setOpaque(true);
+            list.setCellRenderer((l, text, idx, sel, focus) -> {
+                cell.setText(text);
+                cell.setBackground(idx == hoverIdx ? C_ACCENT : idx == selectedIdx ? C_ACC_HI : C_POPUP);
+                return cell;
+            });
+            MouseAdapter ma = new MouseAdapter() {
+                public void mouseMoved(MouseEvent e) {
+                    int i = list.locationToIndex(e.getPoint());
+                    if (i != hoverIdx) { hoverIdx = i; list.repaint(); }
+                }
+                public void mouseExited(MouseEvent e) { hoverIdx = -1; list.repaint(); }
+                public void mousePressed(MouseEvent e) {
+                    int i = list.locationToIndex(e.getPoint());
+                    if (i < 0) return;
+                    selectedIdx = i;
+                    display.setText(items.get(i));
+                    display.setForeground(C_WHITE);
+                    popup.setVisible(false);
+                    for (Runnable r : listeners) r.run();
+                }
+            };
+            list.addMouseListener(ma);
+            list.addMouseMotionListener(ma);
 
             popupScroll = new JScrollPane(list);
             popupScroll.setBackground(C_POPUP);
             popupScroll.getViewport().setBackground(C_POPUP);
             popupScroll.setBorder(null);
             popupScroll.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-            popupScroll.getVerticalScrollBar().setUnitIncrement(24);
+            popupScroll.getVerticalScrollBar().setUnitIncrement(ROW_H);
             darkScrollBar(popupScroll.getVerticalScrollBar());
 
-            int visibleRows = Math.min(items.size(), 18);
-            int popH = visibleRows * 24 + 4;
-            popupScroll.setPreferredSize(new Dimension(getWidth() - 2, popH));
-
             popup.setLayout(new BorderLayout());
             popup.add(popupScroll, BorderLayout.CENTER);
-            popup.setPopupSize(getWidth(), popH + 2);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  CONSOLE — fixed-size line ring, viewer paints only what is visible
+    // ═══════════════════════════════════════════════════════════════════
+    static final int CONSOLE_LINES = 10_000;
+
+    /** The last {@code capacity} lines; older ones are overwritten, so memory stays flat. */
+    static final class LogBuffer {
+        private final String[] ring;
+        private long total;        // lines added since the last clear
+        private int widest;        // longest line seen since the last clear, in chars
+
+        LogBuffer(int capacity) { ring = new String[capacity]; }
+
+        synchronized void add(String line) {
+            ring[(int) (total++ % ring.length)] = line;
+            if (line.length() > widest) widest = line.length();
+        }
+
+        synchronized void addAll(Collection<String> lines) { for (String l : lines) add(l); }
+
+        synchronized int size()     { return (int) Math.min(total, ring.length); }
+        synchronized int widest()   { return widest; }
+        /** Lines overwritten since the last clear. */
+        synchronized long dropped() { return Math.max(0, total - ring.length); }
+
+        /** Up to {@code n} lines starting at {@code from} (0 = oldest held). */
+        synchronized String[] lines(int from, int n) {
+            n = Math.max(0, Math.min(n, size() - from));
+            String[] out = new String[n];
+            long base = total - size() + from;
+            for (int i = 0; i < n; i++) out[i] = ring[(int) ((base + i) % ring.length)];
+            return out;
+        }
+
+        synchronized String text() {
+            StringBuilder sb = new StringBuilder();
+            for (String l : lines(0, size())) sb.append(l).append('\n');
+            return sb.toString();
+        }
+
+        synchronized void clear() { Arrays.fill(ring, null); total = 0; widest = 0; }
+    }
+
+    /**
+     * Scrollable view over a {@link LogBuffer}. Its size is lines × line
+     * height, but paint only touches the rows inside the clip, so cost does
+     * not depend on how much is buffered. Lines are not wrapped.
+     */
+    static final class ConsoleView extends JComponent implements Scrollable {
+        static final int PAD = 8;
+        final LogBuffer buf;
+        private long seenDropped;
+
+        ConsoleView(LogBuffer buf) {
+            this.buf = buf;
+            setFont(new Font("Monospaced", Font.PLAIN, 11));
+            setForeground(C_GREEN);
+            setBackground(C_CONSOLE);
+            setOpaque(true);
+        }
+
+        int lineHeight() { return getFontMetrics(getFont()).getHeight(); }
+
+        @Override public Dimension getPreferredSize() {
+            FontMetrics fm = getFontMetrics(getFont());
+            return new Dimension(2 * PAD + buf.widest() * fm.charWidth('m'),
+                                 2 * PAD + buf.size() * fm.getHeight());
+        }
+
+        /**
+         * Call on the EDT after lines were added or cleared. Follows the tail
+         * if the user was at the bottom; otherwise keeps the same lines in
+         * view while old ones drop off the front.
+         */
+        void refresh() {
+            long d = buf.dropped();
+            int shift = (int) Math.min(Integer.MAX_VALUE / 64, Math.max(0, d - seenDropped));
+            seenDropped = d;
+            JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+            if (vp == null) { revalidate(); repaint(); return; }
+            Rectangle r = vp.getViewRect();
+            boolean atEnd = r.y + r.height >= getHeight() - lineHeight();
+            Dimension pref = getPreferredSize();         // size now, as ViewportLayout would
+            setSize(Math.max(pref.width, r.width), Math.max(pref.height, r.height));
+            if (atEnd) vp.setViewPosition(new Point(r.x, Math.max(0, getHeight() - r.height)));
+            else if (shift > 0) vp.setViewPosition(new Point(r.x, Math.max(0, r.y - shift * lineHeight())));
+            repaint();
+        }
+
+        @Override protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            g.setFont(getFont());
+            g.setColor(getForeground());
+            FontMetrics fm = g.getFontMetrics();
+            int lh = fm.getHeight();
+            int first = Math.max(0, (clip.y - PAD) / lh);
+            int last  = (clip.y + clip.height - PAD) / lh + 1;
+            String[] rows = buf.lines(first, last - first);
+            for (int i = 0; i < rows.length; i++)
+                g.drawString(rows[i], PAD, PAD + (first + i) * lh + fm.getAscent());
+        }
+
+        @Override public Dimension getPreferredScrollableViewportSize() { return getPreferredSize(); }
+        @Override public int getScrollableUnitIncrement(Rectangle vis, int orient, int dir) {
+            return orient == SwingConstants.VERTICAL ? lineHeight() : getFontMetrics(getFont()).charWidth('m') * 4;
+        }
+        @Override public int getScrollableBlockIncrement(Rectangle vis, int orient, int dir) {
+            return orient == SwingConstants.VERTICAL ? Math.max(lineHeight(), vis.height - lineHeight()) : vis.width;
+        }
+        @Override public boolean getScrollableTracksViewportWidth() {
+            return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+        }
+        @Override public boolean getScrollableTracksViewportHeight() {
+            return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
         }
     }
 
@@ -318,6 +442,15 @@ public class CatLauncher extends JFrame {
         add(buildCards(),   BorderLayout.CENTER);
         add(buildBottom(),  BorderLayout.SOUTH);
 
+        // Stop in-flight downloads before EXIT_ON_CLOSE; .part files resume next time
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                engine.cancelDownloads();
+                if (sharing != null) toggleSharing();
+                engine.launcherLog.close();
+            }
+        });
+
         loadProfile();
     }
 
@@ -467,7 +600,18 @@ public class CatLauncher extends JFrame {
         ddType = new DarkDropdown();
         ddType.setItems(Arrays.asList("release", "snapshot", "old_beta", "old_alpha", "all"));
         ddType.addChangeListener(this::filterVersions);
-        p.add(ddType, g);
+        JPanel tp = dk(new BorderLayout(6, 0));
+        tp.add(ddType, BorderLayout.CENTER);
+        tfSearch = dkField("");
+        tfSearch.setPreferredSize(new Dimension(130, 28));
+        tfSearch.setToolTipText("Search versions of this type, e.g. 23w45a");
+        tfSearch.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e)  { filterVersions(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e)  { filterVersions(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { filterVersions(); }
+        });
+        tp.add(tfSearch, BorderLayout.EAST);
+        p.add(tp, g);
 
         // Version
         g.gridy = 3; g.gridx = 0; g.weightx = 0;
@@ -552,19 +696,44 @@ public class CatLauncher extends JFrame {
         g.gridy = 2; g.gridx = 0; g.weightx = 0;
         p.add(lbl("Game Dir", C_GREY, 12, false), g);
         g.gridx = 1; g.weightx = 1;
-        JTextField td = dkField(ROOT.toString());
+        JPanel gd = dk(new BorderLayout(6, 0));
+        JTextField td = dkField(CatLauncherEngine.ROOT.toString());
         td.setEditable(false); td.setForeground(C_DIM);
-        p.add(td, g);
-
-        g.gridy = 3; g.gridx = 0; g.gridwidth = 2;
-        JButton bo = mkBtn("Open Game Folder");
+        gd.add(td, BorderLayout.CENTER);
+        JButton bo = mkBtn("Open");
         bo.addActionListener(e -> {
-            try { Desktop.getDesktop().open(ROOT.toFile()); }
+            try { Desktop.getDesktop().open(CatLauncherEngine.ROOT.toFile()); }
             catch (Exception ex) { log("Err: " + ex.getMessage()); }
         });
-        p.add(bo, g);
+        gd.add(bo, BorderLayout.EAST);
+        p.add(gd, g);
 
-        g.gridy = 4;
+        // LAN mirror: fetch from another launcher first, or share this one
+        g.gridy = 3; g.gridx = 0; g.weightx = 0;
+        p.add(lbl("LAN Mirror", C_GREY, 12, false), g);
+        g.gridx = 1; g.weightx = 1;
+        JPanel mp = dk(new BorderLayout(6, 0));
+        tfMirror = dkField("");
+        tfMirror.setToolTipText("Another CatLauncher that is sharing, e.g. 192.168.1.20 - tried before Mojang");
+        mp.add(tfMirror, BorderLayout.CENTER);
+        btnShare = mkBtn("Share");
+        btnShare.setToolTipText("Serve this install's libraries, versions and assets on port "
+                                + CatLauncherEngine.MIRROR_PORT);
+        btnShare.addActionListener(e -> { toggleSharing(); saveProfile(); });
+        mp.add(btnShare, BorderLayout.EAST);
+        p.add(mp, g);
+
+        g.gridy = 4; g.gridx = 0; g.gridwidth = 2;
+        JPanel maint = dk(new GridLayout(1, 2, 8, 0));
+        JButton bv = mkBtn("Verify Installation");
+        bv.addActionListener(e -> doVerify());
+        maint.add(bv);
+        JButton bg = mkBtn("Clean Up Data");
+        bg.addActionListener(e -> doCleanup());
+        maint.add(bg);
+        p.add(maint, g);
+
+        g.gridy = 5;
         JPanel info = new JPanel(new BorderLayout());
         info.setBackground(C_PANEL);
         info.setBorder(BorderFactory.createCompoundBorder(
@@ -588,7 +757,7 @@ public class CatLauncher extends JFrame {
         info.add(ta);
         p.add(info, g);
 
-        g.gridy = 5; g.weighty = 1;
+        g.gridy = 6; g.weighty = 1;
         p.add(Box.createVerticalGlue(), g);
         return p;
     }
@@ -599,30 +768,24 @@ public class CatLauncher extends JFrame {
         p.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         p.add(lbl("Console Output", C_WHITE, 14, true), BorderLayout.NORTH);
 
-        taLog = new JTextArea();
-        taLog.setEditable(false);
-        taLog.setBackground(C_CONSOLE);
-        taLog.setForeground(C_GREEN);
-        taLog.setCaretColor(C_GREEN);
-        taLog.setFont(new Font("Monospaced", Font.PLAIN, 11));
-        taLog.setLineWrap(true);
-        taLog.setWrapStyleWord(true);
-        taLog.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
-        taLog.setOpaque(true);
-
-        JScrollPane sp = new JScrollPane(taLog);
+        console = new ConsoleView(logBuf);
+
+        JScrollPane sp = new JScrollPane(console);
         sp.setBorder(BorderFactory.createLineBorder(C_BORDER));
         sp.getViewport().setBackground(C_CONSOLE);
         sp.setBackground(C_BG);
         sp.setOpaque(true);
         darkScrollBar(sp.getVerticalScrollBar());
         darkScrollBar(sp.getHorizontalScrollBar());
-        sp.getVerticalScrollBar().setUnitIncrement(14);
         p.add(sp, BorderLayout.CENTER);
 
         JPanel bot = dk(new FlowLayout(FlowLayout.RIGHT));
+        JButton bcp = mkBtn("Copy");
+        bcp.addActionListener(e -> Toolkit.getDefaultToolkit().getSystemClipboard()
+            .setContents(new java.awt.datatransfer.StringSelection(logBuf.text()), null));
+        bot.add(bcp);
         JButton bc = mkBtn("Clear");
-        bc.addActionListener(e -> taLog.setText(""));
+        bc.addActionListener(e -> { logBuf.clear(); console.refresh(); });
         bot.add(bc);
         p.add(bot, BorderLayout.SOUTH);
         return p;
@@ -729,19 +892,30 @@ public class CatLauncher extends JFrame {
     // ═══════════════════════════════════════════════════════════════════
     //  LOGGING
     // ═══════════════════════════════════════════════════════════════════
-    void log(String msg) {
-        String ts = String.format("[%tT] ", System.currentTimeMillis());
-        SwingUtilities.invokeLater(() -> {
-            if (taLog != null) {
-                taLog.append(ts + msg + "\n");
-                taLog.setCaretPosition(taLog.getDocument().getLength());
-            }
-        });
-        System.out.println(msg);
-    }
+    /** Lines waiting for the EDT; any thread may add, only {@link #drainLog} removes. */
+    final ConcurrentLinkedQueue<String> pendingLog = new ConcurrentLinkedQueue<>();
+    final AtomicInteger pendingCount = new AtomicInteger();
+    final AtomicBoolean logDrainScheduled = new AtomicBoolean();
+    /** One-shot, so the console is refreshed at most ~30 times a second and never when idle. */
+    final javax.swing.Timer logTimer = new javax.swing.Timer(33, e -> drainLog());
+    { logTimer.setRepeats(false); }
+
+    void log(String msg) { engine.log(msg); }
     void status(String s) { SwingUtilities.invokeLater(() -> lblStatus.setText(s)); }
     void prog(int v)      { SwingUtilities.invokeLater(() -> progBar.setValue(v)); }
 
+
+    /** On the EDT: move everything queued into the ring in one batch, then repaint once. */
+    void drainLog() {
+        logDrainScheduled.set(false);              // lines added after this reschedule
+        List<String> batch = new ArrayList<>();
+        for (String l; (l = pendingLog.poll()) != null; ) batch.add(l);
+        if (batch.isEmpty()) return;
+        pendingCount.addAndGet(-batch.size());
+        logBuf.addAll(batch);
+        if (console != null) console.refresh();
+    }
+
     // ═══════════════════════════════════════════════════════════════════
     //  PROFILE
     // ═══════════════════════════════════════════════════════════════════
@@ -755,102 +929,62 @@ public class CatLauncher extends JFrame {
             String st = ddType.getSelected();
             if (sv != null) p.setProperty("version", sv);
             if (st != null) p.setProperty("type", st);
-            try (OutputStream o = Files.newOutputStream(PROF_FILE)) {
+            p.setProperty("mirror",   tfMirror.getText().trim());
+            p.setProperty("share",    String.valueOf(sharing != null));
+            try (OutputStream o = Files.newOutputStream(CatLauncherEngine.PROF_FILE)) {
                 p.store(o, APP + " Profile");
             }
         } catch (Exception e) { log("Save err: " + e.getMessage()); }
     }
 
     void loadProfile() {
-        if (!Files.exists(PROF_FILE)) return;
+        if (!Files.exists(CatLauncherEngine.PROF_FILE)) return;
         try {
             Properties p = new Properties();
-            try (InputStream i = Files.newInputStream(PROF_FILE)) { p.load(i); }
+            try (InputStream i = Files.newInputStream(CatLauncherEngine.PROF_FILE)) { p.load(i); }
             if (p.containsKey("username")) tfUser.setText(p.getProperty("username"));
             if (p.containsKey("ram"))      tfRam.setText(p.getProperty("ram"));
             if (p.containsKey("java"))     tfJava.setText(p.getProperty("java"));
+            if (p.containsKey("mirror"))   tfMirror.setText(p.getProperty("mirror"));
+            if (Boolean.parseBoolean(p.getProperty("share"))) toggleSharing();
         } catch (Exception e) { log("Load err: " + e.getMessage()); }
     }
 
     // ═══════════════════════════════════════════════════════════════════
     //  VERSION MANIFEST
     // ═══════════════════════════════════════════════════════════════════
+    /** Shows the cached version list straight away, then revalidates it in the background. */
     void fetchManifest() {
         new Thread(() -> {
-            log("Fetching version manifest...");
-            status("Downloading version list...");
-            try {
-                String json = httpGet(MANIFEST_URL);
-                log("Manifest downloaded: " + json.length() + " bytes");
-                parseManifest(json);
-                log("Parsed " + versions.size() + " total versions");
-
-                if (versions.isEmpty()) {
-                    log("WARNING: 0 versions parsed!");
-                    log("JSON starts with: " + json.substring(0, Math.min(200, json.length())));
-                }
-
-                // Count by type
-                int rel = 0, snap = 0, beta = 0, alpha = 0;
-                synchronized (versions) {
-                    for (String[] v : versions) {
-                        switch (v[1]) {
-                            case "release":   rel++;   break;
-                            case "snapshot":  snap++;  break;
-                            case "old_beta":  beta++;  break;
-                            case "old_alpha": alpha++; break;
-                        }
-                    }
-                }
-                log("  Releases: " + rel + "  Snapshots: " + snap
-                    + "  Betas: " + beta + "  Alphas: " + alpha);
-
-                SwingUtilities.invokeAndWait(this::filterVersions);
-                log("Version dropdown populated: " + ddVersion.items.size() + " shown");
-                status("Ready - " + versions.size() + " versions");
-
-                // Restore saved selection
-                if (Files.exists(PROF_FILE)) {
-                    Properties pr = new Properties();
-                    try (InputStream in = Files.newInputStream(PROF_FILE)) { pr.load(in); }
-                    String st = pr.getProperty("type"), sv = pr.getProperty("version");
-                    if (st != null) SwingUtilities.invokeAndWait(() -> {
-                        ddType.setSelected(st);
-                        filterVersions();
-                    });
-                    if (sv != null) SwingUtilities.invokeAndWait(() -> ddVersion.setSelected(sv));
-                }
-            } catch (Exception e) {
-                log("Manifest error: " + e.getMessage());
-                status("Offline - check connection");
-            }
+            boolean cached = engine.loadCachedManifest(this::publishManifest);
+            engine.revalidateManifest(this::publishManifest, cached);
         }, "manifest").start();
     }
 
-    void parseManifest(String json) {
-        versions.clear();
-        int idx = json.indexOf("\"versions\"");
-        if (idx < 0) return;
-        int arrStart = json.indexOf('[', idx);
-        if (arrStart < 0) return;
-
-        Pattern pat = Pattern.compile(
-            "\"id\"\\s*:\\s*\"([^\"]+)\".*?\"type\"\\s*:\\s*\"([^\"]+)\".*?\"url\"\\s*:\\s*\"([^\"]+)\"",
-            Pattern.DOTALL);
-
-        int depth = 0, objStart = -1;
-        for (int i = arrStart + 1; i < json.length(); i++) {
-            char c = json.charAt(i);
-            if (c == '{') { if (depth == 0) objStart = i; depth++; }
-            else if (c == '}') {
-                depth--;
-                if (depth == 0 && objStart >= 0) {
-                    Matcher m = pat.matcher(json.substring(objStart, i + 1));
-                    if (m.find()) versions.add(new String[]{m.group(1), m.group(2), m.group(3)});
-                    objStart = -1;
-                }
+    /** Refresh the dropdowns for a newly published snapshot, keeping the user's selection. */
+    void publishManifest(CatLauncherEngine.VersionManifest vm, boolean first) throws Exception {
+        vm.search();                                    // build off the EDT, before anyone types
+        if (first) {
+            SwingUtilities.invokeAndWait(this::filterVersions);
+            log("Version dropdown populated: " + ddVersion.items.size() + " shown");
+
+            // Restore saved selection
+            if (Files.exists(CatLauncherEngine.PROF_FILE)) {
+                Properties pr = new Properties();
+                try (InputStream in = Files.newInputStream(CatLauncherEngine.PROF_FILE)) { pr.load(in); }
+                String st = pr.getProperty("type"), sv = pr.getProperty("version");
+                if (st != null) SwingUtilities.invokeAndWait(() -> {
+                    ddType.setSelected(st);
+                    filterVersions();
+                });
+                if (sv != null) SwingUtilities.invokeAndWait(() -> ddVersion.setSelected(sv));
             }
-            else if (c == ']' && depth == 0) break; // end of versions array
+        } else {
+            SwingUtilities.invokeAndWait(() -> {
+                String keep = ddVersion.getSelected();
+                filterVersions();
+                if (keep != null) ddVersion.setSelected(keep);
+            });
         }
     }
 
@@ -858,12 +992,9 @@ public class CatLauncher extends JFrame {
     void filterVersions() {
         String type = ddType.getSelected();
         if (type == null) type = "release";
-        List<String> filtered = new ArrayList<>();
-        synchronized (versions) {
-            for (String[] v : versions)
-                if (type.equals("all") || v[1].equals(type))
-                    filtered.add(v[0]);
-        }
+        String q = tfSearch.getText().trim();
+        CatLauncherEngine.VersionManifest vm = engine.manifest;
+        List<String> filtered = q.isEmpty() ? vm.ids(type) : vm.search().find(q, type);
         ddVersion.setItems(filtered);
         lblVerCount.setText("(" + filtered.size() + ")");
     }
@@ -888,6 +1019,9 @@ public class CatLauncher extends JFrame {
         String ram  = tfRam.getText().trim();
         String java = tfJava.getText().trim();
         if (java.isEmpty()) java = "java";
+        String mirror = tfMirror.getText().trim();
+        CatLauncherEngine.mirror = CatLauncherEngine.mirrorBase(mirror);
+        if (!mirror.isEmpty() && CatLauncherEngine.mirror == null) log("Ignoring LAN mirror: " + mirror);
 
         saveProfile();
         setTab("console");
@@ -896,7 +1030,7 @@ public class CatLauncher extends JFrame {
 
         final String fJava = java, fVer = ver;
         new Thread(() -> {
-            try { launchGame(user, fVer, ram, fJava); }
+            try { engine.launchGame(user, fVer, ram, fJava); }
             catch (Exception e) { log("LAUNCH ERROR: " + e.getMessage()); status("Launch failed!"); }
             finally {
                 launching = false;
@@ -905,124 +1039,1080 @@ public class CatLauncher extends JFrame {
         }, "launch").start();
     }
 
-    void launchGame(String user, String vid, String ram, String java) throws Exception {
-        log("=== CatLauncher ===========================");
-        log("Version:  " + vid);
-        log("Username: " + user + "  (offline/legacy)");
-        log("RAM:      " + ram + " MB");
+    // ═══════════════════════════════════════════════════════════════════
+    //  CLEAN UP
+    // ═══════════════════════════════════════════════════════════════════
+    void doCleanup() {
+        if (launching) return;
+        launching = true;
+        setTab("console");
+        new Thread(() -> {
+            try (FileChannel lock = CatLauncherEngine.lockData(false)) {
+                if (lock == null) { log("Clean up skipped: a game is running"); return; }
+                log("=== Clean up =============================");
+                status("Scanning...");
+                long t0 = System.currentTimeMillis();
+                Map<Path, Long> garbage = CatLauncherEngine.findGarbage();
+                long bytes = 0;
+                for (long b : garbage.values()) bytes += b;
+                long ms = System.currentTimeMillis() - t0;
+                log("Scan took " + (ms / 1000) + "." + (ms % 1000 / 100) + "s: "
+                    + garbage.size() + " unreferenced files, " + mb(bytes) + " reclaimable");
+                if (garbage.isEmpty()) { status("Nothing to clean up"); return; }
+                final long fBytes = bytes;
+                int[] answer = { JOptionPane.NO_OPTION };
+                SwingUtilities.invokeAndWait(() -> answer[0] = JOptionPane.showConfirmDialog(this,
+                    "Delete " + garbage.size() + " unreferenced files (" + mb(fBytes) + ")?",
+                    APP, JOptionPane.YES_NO_OPTION));
+                if (answer[0] != JOptionPane.YES_OPTION) { status("Clean up cancelled"); return; }
+                int failed = CatLauncherEngine.sweep(garbage.keySet());
+                log("Removed " + (garbage.size() - failed) + " files" + (failed > 0 ? ", " + failed + " failed" : ""));
+                status("Freed " + mb(fBytes));
+            } catch (Exception e) {
+                log("Clean up error: " + e.getMessage());
+                status("Clean up failed!");
+            } finally { launching = false; }
+        }, "cleanup").start();
+    }
 
-        // 1. Resolve version URL
-        status("Resolving..."); prog(5);
-        String vUrl = null;
-        synchronized (versions) {
-            for (String[] v : versions) if (v[0].equals(vid)) { vUrl = v[2]; break; }
+    static String mb(long bytes) { return String.format("%.1f MB", bytes / (1024.0 * 1024.0)); }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LAN SHARING
+    // ═══════════════════════════════════════════════════════════════════
+    /** Starts or stops serving this install to other launchers on the LAN. */
+    void toggleSharing() {
+        try {
+            if (sharing == null) {
+                sharing = engine.serveMirror(CatLauncherEngine.MIRROR_PORT);
+                btnShare.setText("Stop Sharing");
+            } else {
+                sharing.close();
+                log("Mirror stopped: " + sharing.metrics());
+                sharing = null;
+                btnShare.setText("Share");
+            }
+        } catch (IOException e) { log("Mirror error: " + e.getMessage()); }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  VERIFY INSTALLATION
+    // ═══════════════════════════════════════════════════════════════════
+    void doVerify() {
+        if (launching) return;
+        launching = true;
+        setTab("console");
+        new Thread(() -> {
+            try { engine.verifyInstallation(); }
+            catch (Exception e) { log("Verify error: " + e.getMessage()); status("Verify failed!"); }
+            finally { launching = false; }
+        }, "verify").start();
+    }
+}
+
+// ═══════════════════════════════════════════════════════════════════════
+//  ENGINE — manifest, downloads, install and launch; no AWT, no Swing
+// ═══════════════════════════════════════════════════════════════════════
+/**
+ * Everything between "pick a version" and "the game is running", usable
+ * without a display. The window drives it through a {@link Listener}, and
+ * so does {@link CatLauncherCli}. Nothing here may touch java.awt or
+ * javax.swing: loading this class must not load the toolkit.
+ */
+final class CatLauncherEngine {
+    static final String APP  = "CatLauncher";
+    static final String VER  = "1.1.0";
+    static final String MANIFEST_URL =
+        "https://piston-meta.mojang.com/mc/game/version_manifest_v2.json";
+
+    static Path ROOT, VER_DIR, LIB_DIR, ASS_DIR, NAT_DIR, STORE_DIR, PROF_FILE;
+
+    /** Where output goes: the window's console and status bar, or a terminal. */
+    interface Listener {
+        /** One timestamped line of launcher or game output. */
+        void line(String text);
+        void status(String text);
+        void progress(int percent);
+        /** True while lines arrive faster than they are shown; game output is thinned meanwhile. */
+        default boolean behind() { return false; }
+    }
+
+    final Listener listener;
+    /** launcher.log for this session; game output goes to its own file instead. */
+    final LogWriter launcherLog;
+
+    // Replaced wholesale on refresh; readers never lock
+    volatile VersionManifest manifest = VersionManifest.EMPTY;
+
+    /** {@link #initDirs} must have run. */
+    CatLauncherEngine(Listener listener) {
+        this.listener = listener;
+        launcherLog = new LogWriter(ROOT.resolve("logs"), "launcher");
+    }
+
+    static void initDirs() {
+        String os = System.getProperty("os.name","").toLowerCase();
+        Path home;
+        if (os.contains("win"))      home = Paths.get(System.getenv("APPDATA"),".catlauncher");
+        else if (os.contains("mac")) home = Paths.get(System.getProperty("user.home"),
+                                              "Library","Application Support","catlauncher");
+        else                         home = Paths.get(System.getProperty("user.home"),".catlauncher");
+        ROOT      = home;
+        VER_DIR   = home.resolve("versions");
+        LIB_DIR   = home.resolve("libraries");
+        ASS_DIR   = home.resolve("assets");
+        NAT_DIR   = home.resolve("natives");
+        STORE_DIR = home.resolve("store");
+        PROF_FILE = home.resolve("profiles.properties");
+        try {
+            Files.createDirectories(VER_DIR);
+            Files.createDirectories(LIB_DIR);
+            Files.createDirectories(ASS_DIR.resolve("indexes"));
+            Files.createDirectories(ASS_DIR.resolve("objects"));
+            Files.createDirectories(NAT_DIR);
+        } catch (IOException e) { System.err.println(e); }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LOGGING
+    // ═══════════════════════════════════════════════════════════════════
+    void log(String msg) { log(msg, launcherLog); }
+
+    /** Listener and {@code file} (if any); never blocks the caller on the UI or disk. */
+    void log(String msg, LogWriter file) {
+        String ts = timestamp();
+        for (int i = 0, j; i <= msg.length(); i = j + 1) {     // split on \n, no regex
+            j = msg.indexOf('\n', i);
+            if (j < 0) j = msg.length();
+            String line = ts + msg.substring(i, j > i && msg.charAt(j - 1) == '\r' ? j - 1 : j);
+            listener.line(line);
+            if (file != null) file.append(line);
         }
-        if (vUrl == null) throw new RuntimeException("Not in manifest: " + vid);
+    }
 
-        // 2. Version JSON
-        Path vDir = VER_DIR.resolve(vid);
-        Files.createDirectories(vDir);
-        Path vjp = vDir.resolve(vid + ".json");
-        if (!Files.exists(vjp)) {
-            log("Downloading version metadata...");
-            Files.write(vjp, httpGet(vUrl).getBytes(StandardCharsets.UTF_8));
+    void status(String s) { listener.status(s); }
+    void prog(int v)      { listener.progress(v); }
+
+    private static final class Stamp {
+        final long second; final String text;
+        Stamp(long second, String text) { this.second = second; this.text = text; }
+    }
+    private static volatile Stamp lastStamp = new Stamp(-1, "");
+
+    /**
+     * Local HH:mm:ss with {@code sep} between fields. Built by hand because
+     * Formatter's %tT pulls in locale and calendar data, and java.time's
+     * zone rules a service loader, each costing the CLI more than its run.
+     */
+    static String clock(long millis, String sep) {
+        int s = (int) Math.floorMod(Math.floorDiv(localMillis(millis), 1000L), 86_400L);
+        return two(s / 3600) + sep + two(s / 60 % 60) + sep + two(s % 60);
+    }
+
+    /** {@code millis} shifted by the default zone's offset at that instant. */
+    static long localMillis(long millis) { return millis + TimeZone.getDefault().getOffset(millis); }
+
+    static String two(int v) { return v < 10 ? "0" + v : String.valueOf(v); }
+
+    /** "[HH:mm:ss] " — formatted once per second, not once per line. */
+    static String timestamp() {
+        long now = System.currentTimeMillis(), sec = now / 1000;
+        Stamp s = lastStamp;
+        if (s.second != sec) lastStamp = s = new Stamp(sec, "[" + clock(now, ":") + "] ");
+        return s.text;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LOG FILES — one writer thread per file, rotated, old segments gzipped
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Appends lines to {@code dir/name.log} from a dedicated thread through
+     * a 1 MB direct buffer. {@link #append} only offers to a bounded queue,
+     * so a slow disk costs dropped lines (noted in the file), never a stall
+     * in the caller. The file rotates at 8 MB or 24 h, and at the start of
+     * each session. Rotated segments become name-yyyyMMdd-HHmmss.log.gz, and
+     * the newest ten are kept. Several processes may log under one name (the
+     * window and a {@code serve} daemon): only the one holding name.lock
+     * writes, rotates and archives name.log; the others write name-p<pid>.log
+     * and hand it over as a segment when they close.
+     */
+    static final class LogWriter implements Closeable, Runnable {
+        static final long MAX_BYTES  = 8L << 20;
+        static final long MAX_AGE_MS = 24 * 3600_000L;
+        static final int  KEEP = 10, QUEUE = 1 << 16;
+        private static final String WAKE = new String("");   // compared by identity
+
+        private final Path dir;
+        private final String name;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE);
+        private final AtomicLong dropped = new AtomicLong();
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+        private final java.nio.charset.CharsetEncoder enc = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(java.nio.charset.CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(java.nio.charset.CodingErrorAction.REPLACE);
+        private final Thread thread;
+        private volatile boolean closed;
+        private FileChannel out, lock;                 // writer thread only
+        private Path cur;
+        private long written, openedAt;
+        private static final AtomicInteger SEQ = new AtomicInteger();
+
+        LogWriter(Path dir, String name) {
+            this.dir = dir; this.name = name;
+            thread = new Thread(this, "log-" + name);
+            thread.setDaemon(true);
+            thread.start();
         }
-        String vj = new String(Files.readAllBytes(vjp), StandardCharsets.UTF_8);
-        prog(10);
 
-        // 3. Client JAR
-        status("Client jar..."); 
-        Path cjar = vDir.resolve(vid + ".jar");
-        if (!Files.exists(cjar)) {
-            String cu = findClientUrl(vj, vid);
-            if (cu != null) { log("Downloading client..."); download(cu, cjar); }
-            else throw new RuntimeException("No client URL for " + vid);
+        void append(String line) {
+            if (closed || !queue.offer(line)) dropped.incrementAndGet();
         }
-        log("Client: " + Files.size(cjar) / 1024 + " KB");
-        prog(20);
 
-        // 4. Libraries
-        status("Libraries...");
-        List<Path> libs = resolveLibs(vj);
-        prog(55);
+        /** Writes out what is queued and stops the thread; waits up to two seconds. */
+        @Override public void close() {
+            closed = true;
+            queue.offer(WAKE);                         // if full, the writer is not waiting anyway
+            try { thread.join(2000); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
 
-        // 5. Assets
-        status("Downloading assets...");
-        String assetId = jn(vj, "assetIndex", "id", null);
-        String assetUrl = jn(vj, "assetIndex", "url", null);
-        String assetIndexJson = null;
-        if (assetId != null && assetUrl != null) {
-            Path af = ASS_DIR.resolve("indexes").resolve(assetId + ".json");
-            if (!Files.exists(af)) {
-                log("Downloading asset index: " + assetId);
+        /** The writer thread. */
+        @Override public void run() {
+            List<String> batch = new ArrayList<>();
+            try {
+                Files.createDirectories(dir);
+                cur = claim();
+                rotate();
+                while (!closed || !queue.isEmpty()) {
+                    String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch);
+                        long d = dropped.getAndSet(0);
+                        if (d > 0) write("[" + d + " lines dropped: log writer fell behind]");
+                        for (String l : batch) if (l != WAKE) write(l);
+                        batch.clear();
+                        flush();
+                    }
+                    if (written >= MAX_BYTES || (written > 0 && now() - openedAt >= MAX_AGE_MS)) rotate();
+                }
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Log " + name + ": " + e);
+            } finally {
                 try {
-                    assetIndexJson = httpGet(assetUrl);
-                    Files.write(af, assetIndexJson.getBytes(StandardCharsets.UTF_8));
-                } catch (Exception e) { log("Asset idx err: " + e.getMessage()); }
-            } else {
-                assetIndexJson = new String(Files.readAllBytes(af), StandardCharsets.UTF_8);
+                    if (out != null) out.close();
+                    if (lock != null) lock.close();            // releases name.lock
+                    else if (cur != null) toSegment(cur);      // the holder archives it later
+                } catch (IOException ignored) {}
             }
-            // Download asset objects
-            if (assetIndexJson != null) {
-                downloadAssetObjects(assetIndexJson);
-            }
-            log("Asset index: " + assetId);
-        } else { assetId = js(vj, "assets"); if (assetId == null) assetId = "legacy"; }
-        prog(65);
-
-        // 6. Natives
-        status("Natives...");
-        Path nd = NAT_DIR.resolve(vid); Files.createDirectories(nd);
-        extractNatives(nd); prog(75);
-
-        // 7. Classpath
-        String sep = System.getProperty("path.separator");
-        StringBuilder cp = new StringBuilder();
-        for (Path l : libs) if (Files.exists(l)) cp.append(l.toAbsolutePath()).append(sep);
-        cp.append(cjar.toAbsolutePath());
+        }
 
-        // 8. Main class
-        String mc = js(vj, "mainClass");
-        if (mc == null) mc = vid.startsWith("b1.") || vid.startsWith("a1.") || vid.startsWith("c0.")
-            ? "net.minecraft.launchwrapper.Launch" : "net.minecraft.client.main.Minecraft";
+        /**
+         * name.log if this process gets name.lock, else a file of its own:
+         * renaming name.log while another process still appends to it would
+         * send that process's lines into a segment that is then gzipped.
+         */
+        private Path claim() throws IOException {
+            lock = FileChannel.open(dir.resolve(name + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            java.nio.channels.FileLock held = null;
+            try { held = lock.tryLock(); }
+            catch (java.nio.channels.OverlappingFileLockException e) { /* another writer in this JVM */ }
+            if (held != null) return dir.resolve(name + ".log");
+            lock.close();
+            lock = null;
+            return dir.resolve(name + "-p" + ProcessHandle.current().pid() + "-" + SEQ.incrementAndGet() + ".log");
+        }
 
-        log("Main: " + mc);
+        private void write(String line) throws IOException {
+            java.nio.CharBuffer cb = java.nio.CharBuffer.wrap(line + "\n");
+            enc.reset();
+            while (enc.encode(cb, buf, true).isOverflow()) flush();
+        }
 
-        // 9. UUID
-        String uuid = offlineUUID(user);
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) written += out.write(buf);
+            buf.clear();
+        }
 
-        // 10. Command
-        List<String> cmd = new ArrayList<>();
-        cmd.add(java);
+        /**
+         * Renames the current file to a segment and starts a new one right
+         * away; gzip and pruning run on the common pool so the writer keeps
+         * draining. Uncompressed segments left by a crash, or handed over by
+         * other processes, are picked up too — by the lock holder only.
+         */
+        private void rotate() throws IOException {
+            if (out != null) { flush(); out.close(); out = null; }
+            toSegment(cur);
+            out = FileChannel.open(cur, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+            written = 0;
+            openedAt = now();
+            if (lock == null) return;
+            // No lambda or shared pool here: both cost a short CLI run more than the gzip itself
+            Thread a = new Thread(new Runnable() { public void run() { archive(); } }, "log-archive-" + name);
+            a.setDaemon(true);
+            a.start();
+        }
 
-        // macOS: GLFW/LWJGL requires this or it crashes instantly
-        if (osName().equals("osx")) {
-            cmd.add("-XstartOnFirstThread");
+        /** Moves a non-empty {@code f} to the next free name-yyyyMMdd-HHmmss[-n].log; returns it, or null. */
+        private Path toSegment(Path f) throws IOException {
+            if (!Files.exists(f) || Files.size(f) == 0) return null;
+            long t = Files.getLastModifiedTime(f).toMillis();
+            java.time.LocalDate day = java.time.LocalDate.ofEpochDay(Math.floorDiv(localMillis(t), 86_400_000L));
+            String stem = name + "-" + day.toString().replace("-", "") + "-" + clock(t, "");
+            for (int i = 0; ; i++) {
+                Path seg = dir.resolve(stem + (i == 0 ? "" : "-" + i) + ".log");
+                if (Files.exists(dir.resolve(seg.getFileName() + ".gz"))) continue;
+                try { Files.move(f, seg); return seg; }          // never over another process's segment
+                catch (FileAlreadyExistsException e) { /* taken: try the next suffix */ }
+            }
         }
 
-        // Java 21+: suppress JNA/JOML restricted access warnings
-        String javaVer = System.getProperty("java.version", "");
-        if (!javaVer.startsWith("1.") && !javaVer.startsWith("8")) {
+        /**
+         * Gzips this log's segments, adopting files of processes that died
+         * before handing theirs over, and keeps the newest {@link #KEEP}.
+         * Names are matched by hand: a glob or regex here would load the
+         * regex engine into every short CLI run.
+         */
+        private synchronized void archive() {
             try {
-                int major = Integer.parseInt(javaVer.split("[^0-9]")[0]);
-                if (major >= 21) {
-                    cmd.add("--enable-native-access=ALL-UNNAMED");
+                List<Path> logs = new ArrayList<>(), gzs = new ArrayList<>();
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                    for (Path p : ds) {
+                        String n = p.getFileName().toString();
+                        long pid = handedOverPid(n);
+                        if (pid >= 0 && !ProcessHandle.of(pid).isPresent()) {
+                            Path seg = toSegment(p);
+                            if (seg != null) logs.add(seg);
+                        }
+                        else if (isSegment(n, ".log")) logs.add(p);
+                        else if (isSegment(n, ".log.gz")) gzs.add(p);
+                    }
                 }
-            } catch (NumberFormatException ignored) {
-                // if we can't parse, add it anyway to be safe
-                cmd.add("--enable-native-access=ALL-UNNAMED");
-            }
+                for (Path seg : logs) {
+                    Path gz = dir.resolve(seg.getFileName() + ".gz"), tmp = dir.resolve(gz.getFileName() + ".tmp");
+                    try (OutputStream o = new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+                        Files.copy(seg, o);
+                    }
+                    Files.move(tmp, gz, StandardCopyOption.ATOMIC_MOVE);
+                    Files.delete(seg);
+                    gzs.add(gz);
+                }
+                Collections.sort(gzs);                   // one directory: by name, so by time
+                Collections.reverse(gzs);
+                for (int i = KEEP; i < gzs.size(); i++) Files.deleteIfExists(gzs.get(i));
+            } catch (IOException e) { System.err.println("Log " + name + " archive: " + e); }
         }
 
-        cmd.add("-Xmx" + ram + "M"); cmd.add("-Xms256M");
-        cmd.add("-Djava.library.path=" + nd.toAbsolutePath());
-        cmd.add("-Dminecraft.launcher.brand=CatLauncher");
-        cmd.add("-Dminecraft.launcher.version=" + VER);
-        cmd.add("-cp"); cmd.add(cp.toString()); cmd.add(mc);
+        /** name-yyyyMMdd-HHmmss[-n] + {@code suffix}: one of this log's segments (other logs share the directory). */
+        private boolean isSegment(String n, String suffix) {
+            if (!n.startsWith(name + "-") || !n.endsWith(suffix)) return false;
+            String st = n.substring(name.length() + 1, n.length() - suffix.length());
+            return st.length() >= 15 && digits(st, 0, 8) && st.charAt(8) == '-' && digits(st, 9, 15)
+                && (st.length() == 15 || st.charAt(15) == '-' && digits(st, 16, st.length()));
+        }
 
-        String mca = js(vj, "minecraftArguments");
-        if (mca != null) {
-            mca = mca.replace("${auth_player_name}", user)
+        /** The pid in name-p<pid>-<n>.log, or -1 if {@code n} is not such a file. */
+        private long handedOverPid(String n) {
+            String pre = name + "-p";
+            if (!n.startsWith(pre) || !n.endsWith(".log")) return -1;
+            String rest = n.substring(pre.length(), n.length() - 4);
+            int dash = rest.indexOf('-');
+            if (dash <= 0 || dash > 18 || !digits(rest, 0, dash) || !digits(rest, dash + 1, rest.length())) return -1;
+            return Long.parseLong(rest.substring(0, dash));
+        }
+
+        private static boolean digits(String s, int from, int to) {
+            if (from >= to) return false;
+            for (int i = from; i < to; i++) if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+            return true;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  GAME OUTPUT PUMP — keeps the child's pipe empty whatever the console does
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Reads the game's merged stdout/stderr on its own thread as fast as it
+     * arrives. Every line goes to the game log file (itself non-blocking), and
+     * lines for the console go through a bounded queue. Once the queue is
+     * 3/4 full the console gets 1 line in 16 plus warnings and errors; the
+     * pump counts the rest, so the child never blocks on a full pipe.
+     */
+    static final class OutputPump {
+        static final int CAPACITY = 8192, SAMPLE_EVERY = 16;
+
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CAPACITY);
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean done;
+        private long thinned;                          // pump thread only
+
+        OutputPump(InputStream in, LogWriter file) {
+            Thread t = new Thread(() -> run(in, file), "game-output");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private void run(InputStream in, LogWriter file) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(in), 1 << 16)) {
+                for (String line; (line = br.readLine()) != null; ) {
+                    if (file != null) file.append(timestamp() + line);
+                    if (!admit(line) || !queue.offer(line)) dropped.incrementAndGet();
+                }
+            } catch (IOException ignored) {                // pipe closed under us: the game is gone
+            } finally { done = true; }
+        }
+
+        private boolean admit(String line) {
+            if (queue.remainingCapacity() > CAPACITY / 4) return true;
+            return ++thinned % SAMPLE_EVERY == 0 || important(line);
+        }
+
+        static boolean important(String line) {
+            return line.contains("ERROR") || line.contains("WARN") || line.contains("FATAL")
+                || line.contains("Exception");
+        }
+
+        /** Next console line, or null once the game closed its output and all lines were taken. */
+        String take() throws InterruptedException {
+            while (true) {
+                String l = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (l != null) return l;
+                if (done && queue.isEmpty()) return null;
+            }
+        }
+
+        /** Lines kept out of the console so far; the log file still has them. */
+        long dropped() { return dropped.get(); }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  VERSION MANIFEST
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Publishes the cached manifest from disk, if there is one: the binary
+     * snapshot when it matches the JSON, else the JSON (and a new snapshot).
+     * Returns whether anything was published.
+     */
+    boolean loadCachedManifest(Publisher pub) {
+        Path cache = ROOT.resolve("version_manifest_v2.json");
+        Path snap  = ROOT.resolve("version_manifest_v2.bin");
+        if (!Files.exists(cache)) return false;
+        try {
+            VersionManifest vm = VersionManifest.readSnapshot(snap, cache);
+            if (vm != null) publish(vm, "snapshot", pub);
+            else {
+                vm = VersionManifest.parse(
+                    new String(Files.readAllBytes(cache), StandardCharsets.UTF_8));
+                publish(vm, "disk cache", pub);
+                writeSnapshotQuietly(vm, snap, cache);
+            }
+            return true;
+        } catch (Exception e) { log("Manifest cache unreadable: " + e.getMessage()); return false; }
+    }
+
+    /**
+     * Revalidates the manifest with If-None-Match / If-Modified-Since (when
+     * {@code cached}) and publishes it on a 200. Only a 200 replaces the cache.
+     */
+    void revalidateManifest(Publisher pub, boolean cached) {
+        Path cache = ROOT.resolve("version_manifest_v2.json");
+        Path meta  = ROOT.resolve("version_manifest_v2.properties");
+        Path snap  = ROOT.resolve("version_manifest_v2.bin");
+        log("Revalidating version manifest...");
+        if (!cached) status("Downloading version list...");
+        try {
+            Properties validators = new Properties();
+            if (cached && Files.exists(meta))
+                try (InputStream in = Files.newInputStream(meta)) { validators.load(in); }
+            Fetched f = httpGetIfChanged(MANIFEST_URL,
+                validators.getProperty("etag"), validators.getProperty("last-modified"));
+            if (f.notModified) { log("Manifest up to date (304)"); return; }
+            log("Manifest downloaded: " + f.body.length() + " bytes");
+            VersionManifest vm = VersionManifest.parse(f.body);
+            if (vm.size() == 0) {
+                log("WARNING: 0 versions parsed!");
+                log("JSON starts with: " + f.body.substring(0, Math.min(200, f.body.length())));
+                return;
+            }
+            writeAtomic(cache, f.body.getBytes(StandardCharsets.UTF_8));
+            Properties nv = new Properties();
+            if (f.etag != null)         nv.setProperty("etag", f.etag);
+            if (f.lastModified != null) nv.setProperty("last-modified", f.lastModified);
+            ByteArrayOutputStream bo = new ByteArrayOutputStream();
+            nv.store(bo, APP + " manifest validators");
+            writeAtomic(meta, bo.toByteArray());
+            publish(vm, "network", pub);
+            writeSnapshotQuietly(vm, snap, cache);
+        } catch (Exception e) {
+            log("Manifest error: " + e.getMessage());
+            status(cached ? "Offline - using cached version list" : "Offline - check connection");
+        }
+    }
+
+    /** Receives each manifest snapshot as it is published; {@code first} for the first one. */
+    interface Publisher { void published(VersionManifest vm, boolean first) throws Exception; }
+
+    /** Swap in a new snapshot, then hand it to {@code pub}. */
+    void publish(VersionManifest vm, String source, Publisher pub) throws Exception {
+        boolean first = manifest == VersionManifest.EMPTY;
+        manifest = vm;
+        log("Parsed " + vm.size() + " total versions (" + source + ")");
+        log("  Releases: " + vm.count("release") + "  Snapshots: " + vm.count("snapshot")
+            + "  Betas: " + vm.count("old_beta") + "  Alphas: " + vm.count("old_alpha"));
+        pub.published(vm, first);
+        status("Ready - " + vm.size() + " versions");
+    }
+
+    /** The snapshot is only an accelerator; failing to write it is logged, not fatal. */
+    void writeSnapshotQuietly(VersionManifest vm, Path snap, Path src) {
+        try { vm.writeSnapshot(snap, src); }
+        catch (Exception e) { log("Manifest snapshot not written: " + e.getMessage()); }
+    }
+
+    /**
+     * Immutable parsed manifest. Built once per refresh and published through
+     * the volatile {@link #manifest} field, so the UI and launch threads read
+     * it without locking. Versions are ordered newest release time first.
+     */
+    static final class VersionManifest {
+        static final String[] TYPES = { "release", "snapshot", "old_beta", "old_alpha" };
+        static final VersionManifest EMPTY =
+            new VersionManifest(new String[0], new String[0], new String[0], new String[0], new long[0]);
+
+        final String[] ids, types, urls, sha1s;   // sha1 of each version JSON, may be null
+        final long[] releaseTime;
+        private final Map<String, Integer> index;
+        private final List<String> all;
+        private final List<List<String>> byType = new ArrayList<>(TYPES.length);
+
+        /** Arrays must already be in display order; they are kept, not copied. */
+        VersionManifest(String[] ids, String[] types, String[] urls, String[] sha1s, long[] releaseTime) {
+            this.ids = ids; this.types = types; this.urls = urls; this.sha1s = sha1s;
+            this.releaseTime = releaseTime;
+            index = new HashMap<>(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) index.putIfAbsent(ids[i], i);
+            all = Collections.unmodifiableList(Arrays.asList(ids));
+            for (String t : TYPES) {
+                List<String> b = new ArrayList<>();
+                for (int i = 0; i < ids.length; i++) if (t.equals(types[i])) b.add(ids[i]);
+                byType.add(Collections.unmodifiableList(b));
+            }
+        }
+
+        static VersionManifest parse(String json) {
+            List<Object> vs = Json.arr(Json.parse(json), "versions");
+            Integer[] order = new Integer[vs.size()];
+            long[] rt = new long[vs.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                rt[i] = epochMillis(Json.str(vs.get(i), "releaseTime"));
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(rt[b], rt[a])); // stable: ties keep file order
+            int n = 0;
+            String[] ids = new String[order.length], types = new String[order.length],
+                     urls = new String[order.length], sha1s = new String[order.length];
+            long[] times = new long[order.length];
+            for (Integer o : order) {
+                Object v = vs.get(o);
+                String id = Json.str(v, "id"), type = Json.str(v, "type"), url = Json.str(v, "url");
+                if (id == null || type == null || url == null) continue;
+                ids[n] = id; types[n] = type; urls[n] = url; sha1s[n] = Json.str(v, "sha1");
+                times[n] = rt[o]; n++;
+            }
+            return new VersionManifest(Arrays.copyOf(ids, n), Arrays.copyOf(types, n),
+                                       Arrays.copyOf(urls, n), Arrays.copyOf(sha1s, n),
+                                       Arrays.copyOf(times, n));
+        }
+
+        // ─── binary snapshot ────────────────────────────────────────
+        // Layout (big-endian):
+        //   int magic, int format, long srcSize, long srcMtime,
+        //   byte typeCount, typeCount × (short len, utf8),
+        //   int count, count × (int idOff, short idLen, int urlOff, short urlLen,
+        //                       byte type, long releaseTime, byte[20] sha1),
+        //   int strBytes, utf8 string table
+        // srcSize/srcMtime fingerprint the JSON cache the snapshot was built from.
+        static final int SNAP_MAGIC = 0x434C564D, SNAP_FORMAT = 1; // "CLVM"
+
+        /**
+         * Reads a snapshot written by {@link #writeSnapshot}. Returns null when
+         * it is missing, malformed, or was built from a different copy of {@code src}.
+         * Plain reads, not a mapping: a live mapping would stop Windows from
+         * replacing a stale snapshot, and every entry is copied out anyway.
+         */
+        static VersionManifest readSnapshot(Path snap, Path src) {
+            if (!Files.exists(snap) || !Files.exists(src)) return null;
+            try (FileChannel ch = FileChannel.open(snap)) {
+                // Header and fingerprint first, so a stale snapshot costs 24 bytes
+                ByteBuffer h = ByteBuffer.allocate(24);
+                while (h.hasRemaining() && ch.read(h) >= 0) { }
+                h.flip();
+                if (h.remaining() < 24 || h.getInt() != SNAP_MAGIC || h.getInt() != SNAP_FORMAT) return null;
+                if (h.getLong() != Files.size(src)
+                    || h.getLong() != Files.getLastModifiedTime(src).toMillis()) return null;
+                if (ch.size() > Integer.MAX_VALUE) return null;
+                ByteBuffer b = ByteBuffer.allocate((int) ch.size());
+                while (b.hasRemaining() && ch.read(b, b.position()) >= 0) { }
+                b.flip().position(24);
+                String[] typeTable = new String[b.get() & 0xff];
+                for (int t = 0; t < typeTable.length; t++) {
+                    byte[] u = new byte[b.getShort() & 0xffff];
+                    b.get(u);
+                    typeTable[t] = new String(u, StandardCharsets.UTF_8);
+                }
+                int n = b.getInt();
+                int entries = b.position();
+                int strBase = entries + n * SNAP_ENTRY + 4;
+                String[] ids = new String[n], types = new String[n], urls = new String[n],
+                         sha1s = new String[n];
+                long[] times = new long[n];
+                byte[] sha = new byte[20];
+                for (int i = 0; i < n; i++) {
+                    int idOff = b.getInt(), idLen = b.getShort() & 0xffff;
+                    int urlOff = b.getInt(), urlLen = b.getShort() & 0xffff;
+                    types[i] = typeTable[b.get() & 0xff];
+                    times[i] = b.getLong();
+                    b.get(sha);
+                    ids[i]   = snapString(b, strBase + idOff, idLen);
+                    urls[i]  = snapString(b, strBase + urlOff, urlLen);
+                    sha1s[i] = isZero(sha) ? null : hex(sha);
+                }
+                return new VersionManifest(ids, types, urls, sha1s, times);
+            } catch (Exception e) {
+                return null; // corrupt or truncated — caller falls back to the JSON
+            }
+        }
+
+        static final int SNAP_ENTRY = 4 + 2 + 4 + 2 + 1 + 8 + 20;
+
+        /** Writes this manifest as a snapshot of {@code src}, replacing any older one. */
+        void writeSnapshot(Path snap, Path src) throws IOException {
+            List<String> typeTable = new ArrayList<>(Arrays.asList(TYPES));
+            ByteArrayOutputStream strs = new ByteArrayOutputStream();
+            ByteArrayOutputStream ents = new ByteArrayOutputStream();
+            DataOutputStream e = new DataOutputStream(ents);
+            for (int i = 0; i < ids.length; i++) {
+                byte[] id = ids[i].getBytes(StandardCharsets.UTF_8);
+                byte[] url = urls[i].getBytes(StandardCharsets.UTF_8);
+                int t = typeTable.indexOf(types[i]);
+                if (t < 0) { t = typeTable.size(); typeTable.add(types[i]); }
+                e.writeInt(strs.size()); e.writeShort(id.length);  strs.write(id);
+                e.writeInt(strs.size()); e.writeShort(url.length); strs.write(url);
+                e.writeByte(t);
+                e.writeLong(releaseTime[i]);
+                e.write(sha1s[i] != null && sha1s[i].length() == 40 ? unhex(sha1s[i]) : new byte[20]);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(ents.size() + strs.size() + 256);
+            DataOutputStream d = new DataOutputStream(out);
+            d.writeInt(SNAP_MAGIC); d.writeInt(SNAP_FORMAT);
+            d.writeLong(Files.size(src));
+            d.writeLong(Files.getLastModifiedTime(src).toMillis());
+            d.writeByte(typeTable.size());
+            for (String t : typeTable) {
+                byte[] u = t.getBytes(StandardCharsets.UTF_8);
+                d.writeShort(u.length); d.write(u);
+            }
+            d.writeInt(ids.length);
+            ents.writeTo(d);
+            d.writeInt(strs.size());
+            strs.writeTo(d);
+            d.flush();
+            writeAtomic(snap, out.toByteArray());
+        }
+
+        private static String snapString(ByteBuffer b, int off, int len) {
+            if (off < 0 || off + len > b.limit()) throw new IndexOutOfBoundsException("string table");
+            return new String(b.array(), off, len, StandardCharsets.UTF_8);
+        }
+
+        private static boolean isZero(byte[] a) {
+            for (byte x : a) if (x != 0) return false;
+            return true;
+        }
+
+        static long epochMillis(String iso) {
+            if (iso == null) return 0;
+            try { return java.time.OffsetDateTime.parse(iso).toInstant().toEpochMilli(); }
+            catch (Exception e) { return 0; }
+        }
+
+        int size() { return ids.length; }
+
+        String url(String id) {
+            Integer i = index.get(id);
+            return i == null ? null : urls[i];
+        }
+
+        String sha1(String id) {
+            Integer i = index.get(id);
+            return i == null ? null : sha1s[i];
+        }
+
+        /** Ids of one type (or "all"), newest first. Unmodifiable and shared. */
+        List<String> ids(String type) {
+            if ("all".equals(type)) return all;
+            for (int t = 0; t < TYPES.length; t++)
+                if (TYPES[t].equals(type)) return byType.get(t);
+            return Collections.emptyList();
+        }
+
+        int count(String type) { return ids(type).size(); }
+
+        private volatile VersionSearch search;
+
+        /** The search index for this snapshot, built on first use. */
+        VersionSearch search() {
+            VersionSearch s = search;
+            if (s == null) search = s = new VersionSearch(this);   // a racing build is just redundant
+            return s;
+        }
+    }
+
+    /**
+     * Substring index over one manifest's version ids. Every 1-, 2- and
+     * 3-character gram maps to the ascending positions of the ids containing
+     * it. A query intersects the postings of its trigrams, smallest first,
+     * and checks only the survivors, so a keystroke does not scan the list.
+     */
+    static final class VersionSearch {
+        private static final int[] NONE = new int[0];
+        private final VersionManifest vm;
+        private final String[] lower;
+        private final Map<String, int[]> grams;
+
+        VersionSearch(VersionManifest vm) {
+            this.vm = vm;
+            lower = new String[vm.ids.length];
+            Map<String, List<Integer>> g = new HashMap<>();
+            for (int i = 0; i < lower.length; i++) {
+                String s = lower[i] = vm.ids[i].toLowerCase(Locale.ROOT);
+                Set<String> seen = new HashSet<>();
+                for (int n = 1; n <= 3; n++)
+                    for (int j = 0; j + n <= s.length(); j++) {
+                        String k = s.substring(j, j + n);
+                        if (seen.add(k)) g.computeIfAbsent(k, x -> new ArrayList<>()).add(i);
+                    }
+            }
+            grams = new HashMap<>(g.size() * 2);
+            for (Map.Entry<String, List<Integer>> e : g.entrySet())
+                grams.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /** Ids of {@code type} ("all" for any) containing {@code query}: prefix matches first, then newest first. */
+        List<String> find(String query, String type) {
+            String q = query.trim().toLowerCase(Locale.ROOT);
+            if (q.isEmpty()) return vm.ids(type);
+            int[] hits;
+            if (q.length() <= 3) hits = grams.getOrDefault(q, NONE);
+            else {
+                List<int[]> lists = new ArrayList<>();
+                for (int j = 0; j + 3 <= q.length(); j++) {
+                    int[] p = grams.get(q.substring(j, j + 3));
+                    if (p == null) return Collections.emptyList();
+                    lists.add(p);
+                }
+                lists.sort(Comparator.comparingInt(a -> a.length));
+                hits = lists.get(0);
+                for (int k = 1; k < lists.size() && hits.length > 0; k++) hits = intersect(hits, lists.get(k));
+            }
+            boolean any = "all".equals(type);
+            List<String> prefix = new ArrayList<>(), rest = new ArrayList<>();
+            for (int i : hits) {
+                if (!any && !type.equals(vm.types[i])) continue;
+                if (!lower[i].contains(q)) continue;     // every trigram present, but not in sequence
+                (lower[i].startsWith(q) ? prefix : rest).add(vm.ids[i]);
+            }
+            prefix.addAll(rest);
+            return prefix;
+        }
+
+        static int[] intersect(int[] a, int[] b) {
+            int[] out = new int[Math.min(a.length, b.length)];
+            int n = 0;
+            for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+                if (a[i] < b[j]) i++;
+                else if (a[i] > b[j]) j++;
+                else { out[n++] = a[i]; i++; j++; }
+            }
+            return Arrays.copyOf(out, n);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LAUNCH
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Installs whatever {@code vid} is missing and runs it until the game
+     * exits, holding the shared data lock throughout. Returns the exit code.
+     */
+    int launchGame(String user, String vid, String ram, String java) throws Exception {
+        log("=== CatLauncher ===========================");
+        log("Version:  " + vid);
+        log("Username: " + user + "  (offline/legacy)");
+        log("RAM:      " + ram + " MB");
+        FileChannel lock = lockData(true);               // held until the game exits
+        try { return execute(prepare(vid), user, vid, ram, java); }
+        finally { lock.close(); }
+    }
+
+    /**
+     * Installs each version without launching it, under the shared data
+     * lock. Versions are resolved first, then every missing file and asset
+     * object they need is fetched in one pass — each once, however many
+     * versions share it — and only then are natives and plans finished.
+     * Returns false if anything failed; the rest still install.
+     */
+    boolean install(List<String> vids) throws IOException {
+        boolean ok = true;
+        FileChannel lock = lockData(true);
+        try {
+            // Steps 1-5 per version: what is missing, nothing fetched yet
+            status("Resolving..."); prog(5);
+            List<Resolution> pending = new ArrayList<>();
+            for (String vid : new LinkedHashSet<>(vids)) {
+                log("=== Prepare " + vid + " ===");
+                try {
+                    Path vjp = versionJson(vid);
+                    byte[] vjBytes = Files.readAllBytes(vjp);
+                    String planKey = LaunchPlan.key(vjBytes, osName());
+                    if (LaunchPlan.load(vjp.resolveSibling(vid + ".plan"), planKey) != null) {
+                        log("Launch plan: cached");
+                        continue;
+                    }
+                    pending.add(gather(vid, vjp.getParent(),
+                                       Json.parse(new String(vjBytes, StandardCharsets.UTF_8)), planKey));
+                } catch (Exception e) { log("PREPARE ERROR " + vid + ": " + e.getMessage()); ok = false; }
+            }
+            if (pending.isEmpty()) return ok;
+
+            // One pass for all of them: files by path, asset objects by hash
+            Map<Path, Artifact> files = new LinkedHashMap<>();
+            Map<String, Long> objects = new LinkedHashMap<>();
+            Map<String, Set<String>> indexes = new HashMap<>();   // asset id → its hashes
+            int fileRefs = 0, objectRefs = 0;
+            for (Resolution r : pending) {
+                for (Artifact a : r.todo) { fileRefs++; files.putIfAbsent(a.path, a); }
+                if (r.assetIndexJson == null || indexes.containsKey(r.assetId)) continue;
+                Map<String, Long> idx = assetObjects(r.assetIndexJson);
+                indexes.put(r.assetId, idx.keySet());
+                for (Map.Entry<String, Long> e : idx.entrySet()) {
+                    objectRefs++;
+                    objects.putIfAbsent(e.getKey(), e.getValue());
+                }
+            }
+            log("Prepare " + pending.size() + " versions: " + files.size() + " files ("
+                + (fileRefs - files.size()) + " shared), " + objects.size() + " asset objects ("
+                + (objectRefs - objects.size()) + " shared)");
+            Set<Path> failedFiles = new HashSet<>();
+            Set<String> failedObjects = new HashSet<>();
+            ExecutorService side = newTaskExecutor("prepare");
+            try {
+                Future<List<Artifact>> libs = side.submit(() -> fetchAll(new ArrayList<>(files.values()), 10, 90));
+                if (!objects.isEmpty()) for (Artifact a : downloadAssetObjects(objects)) failedObjects.add(a.sha1);
+                for (Artifact a : libs.get()) failedFiles.add(a.path);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                log("PREPARE ERROR: " + e.getCause());
+                return false;
+            } finally { side.shutdownNow(); }
+
+            // Steps 6-8, only for versions whose own downloads all arrived
+            for (Resolution r : pending) {
+                int missing = 0;
+                for (Artifact a : r.todo) if (failedFiles.contains(a.path)) missing++;
+                for (String h : indexes.getOrDefault(r.assetId, Collections.emptySet()))
+                    if (failedObjects.contains(h)) missing++;
+                if (missing > 0 || r.incomplete) {
+                    log("PREPARE ERROR " + r.vid + ": " + (missing > 0 ? missing + " downloads failed"
+                                                                       : "asset index unavailable"));
+                    ok = false;
+                    continue;
+                }
+                try { finish(r); }
+                catch (Exception e) { log("PREPARE ERROR " + r.vid + ": " + e.getMessage()); ok = false; continue; }
+                if (r.incomplete) { log("PREPARE ERROR " + r.vid + ": incomplete"); ok = false; }
+                else log("Prepared " + r.vid);
+            }
+        } finally {
+            lock.close();
+            status("Ready"); prog(0);
+        }
+        return ok;
+    }
+
+    /** Steps 1-8 without starting anything: the plan, from cache or freshly resolved. */
+    LaunchPlan prepare(String vid) throws Exception {
+        status("Resolving..."); prog(5);
+        Path vjp = versionJson(vid);
+        byte[] vjBytes = Files.readAllBytes(vjp);
+
+        // 2. Warm launch: a plan resolved from this exact JSON skips steps 3-8
+        String planKey = LaunchPlan.key(vjBytes, osName());
+        LaunchPlan plan = LaunchPlan.load(vjp.resolveSibling(vid + ".plan"), planKey);
+        if (plan != null) { log("Launch plan: cached"); return plan; }
+        return resolvePlan(vid, vjp.getParent(), Json.parse(new String(vjBytes, StandardCharsets.UTF_8)), planKey);
+    }
+
+    /** Step 1: the version JSON, downloaded on first use. */
+    Path versionJson(String vid) throws Exception {
+        Path vDir = VER_DIR.resolve(vid);
+        Files.createDirectories(vDir);
+        Path vjp = vDir.resolve(vid + ".json");
+        if (!Files.exists(vjp)) {
+            String vUrl = manifest.url(vid);
+            if (vUrl == null) throw new RuntimeException("Not in manifest: " + vid);
+            log("Downloading version metadata...");
+            fetch(vUrl, vjp, manifest.sha1(vid), -1);
+        }
+        return vjp;
+    }
+
+    /** Steps 3-8: download everything the version needs and resolve how to start it. */
+    LaunchPlan resolvePlan(String vid, Path vDir, Object vj, String planKey) throws Exception {
+        prog(10);
+
+        // 3. Client JAR + 4. Libraries — one plan, fetched in parallel
+        status("Client jar & libraries...");
+        Resolution r = gather(vid, vDir, vj, planKey);
+        prog(20);
+        if (!fetchAll(r.todo, 20, 55).isEmpty()) r.incomplete = true;
+        prog(55);
+
+        // 5. Assets
+        status("Downloading assets...");
+        if (r.assetIndexJson != null && downloadAssetObjects(r.assetIndexJson) > 0) r.incomplete = true;
+        prog(65);
+        return finish(r);
+    }
+
+    /** One version between knowing what to fetch (steps 3-5) and finishing it (6-8). */
+    static final class Resolution {
+        final String vid, planKey;
+        final Path vDir, cjar;
+        final Object vj;
+        final List<Artifact> todo = new ArrayList<>(), natives = new ArrayList<>();
+        List<Path> libs;
+        String assetId, assetIndexJson;
+        /** Something it needs failed to download: launchable perhaps, but its plan is not saved. */
+        boolean incomplete;
+
+        Resolution(String vid, Path vDir, Object vj, String planKey) {
+            this.vid = vid; this.vDir = vDir; this.vj = vj; this.planKey = planKey;
+            this.cjar = vDir.resolve(vid + ".jar");
+        }
+    }
+
+    /** Lists the missing client jar and libraries and loads the asset index; fetches no bulk data. */
+    Resolution gather(String vid, Path vDir, Object vj, String planKey) {
+        Resolution r = new Resolution(vid, vDir, vj, planKey);
+        if (!Files.exists(r.cjar)) r.todo.add(clientArtifact(vj, vid, r.cjar));
+        r.libs = resolveLibs(vj, r.todo, r.natives);
+
+        String assetUrl = Json.str(vj, "assetIndex", "url");
+        r.assetId = Json.str(vj, "assetIndex", "id");
+        if (r.assetId != null && assetUrl != null) {
+            Path af = ASS_DIR.resolve("indexes").resolve(r.assetId + ".json");
+            try {
+                if (!Files.exists(af)) {
+                    log("Downloading asset index: " + r.assetId);
+                    fetch(assetUrl, af, Json.str(vj, "assetIndex", "sha1"),
+                          Json.num(vj, -1, "assetIndex", "size"));
+                }
+                r.assetIndexJson = new String(Files.readAllBytes(af), StandardCharsets.UTF_8);
+            } catch (Exception e) { log("Asset idx err: " + e.getMessage()); r.incomplete = true; }
+            log("Asset index: " + r.assetId);
+        } else {
+            r.assetId = Json.str(vj, "assets");
+            if (r.assetId == null) r.assetId = "legacy";
+        }
+        return r;
+    }
+
+    /**
+     * Steps 6-8 once the downloads are in. The plan is saved for the next
+     * launch only if nothing is missing; otherwise the next launch resolves
+     * again and retries the downloads.
+     */
+    LaunchPlan finish(Resolution r) throws Exception {
+        if (!Files.exists(r.cjar)) throw new RuntimeException("Client download failed for " + r.vid);
+        log("Client: " + Files.size(r.cjar) / 1024 + " KB");
+
+        // 6. Natives
+        status("Natives...");
+        Path nd = NAT_DIR.resolve(r.vid); Files.createDirectories(nd);
+        extractNatives(nd, r.natives); prog(75);
+
+        // 7. Classpath
+        String sep = System.getProperty("path.separator");
+        StringBuilder cp = new StringBuilder();
+        for (Path l : r.libs) {
+            if (Files.exists(l)) cp.append(l.toAbsolutePath()).append(sep);
+            else { log("Missing library: " + l.getFileName()); r.incomplete = true; }
+        }
+        cp.append(r.cjar.toAbsolutePath());
+
+        // 8. Main class
+        String mc = Json.str(r.vj, "mainClass");
+        if (mc == null) mc = r.vid.startsWith("b1.") || r.vid.startsWith("a1.") || r.vid.startsWith("c0.")
+            ? "net.minecraft.launchwrapper.Launch" : "net.minecraft.client.main.Minecraft";
+
+        LaunchPlan plan = new LaunchPlan(r.planKey, cp.toString(), mc, Json.str(r.vj, "minecraftArguments"),
+                                         r.assetId, nd.toAbsolutePath());
+        Path planFile = r.vDir.resolve(r.vid + ".plan");
+        if (r.incomplete) {
+            log("Launch plan not saved: downloads incomplete");
+            Files.deleteIfExists(planFile);
+            return plan;
+        }
+        try { plan.save(planFile); }
+        catch (IOException e) { log("Launch plan not saved: " + e.getMessage()); }
+        return plan;
+    }
+
+    /** Steps 9-11: build the command line from a resolved plan and run the game. */
+    int execute(LaunchPlan plan, String user, String vid, String ram, String java) throws Exception {
+        String mc = plan.mainClass, assetId = plan.assetId;
+        log("Main: " + mc);
+
+        // 9. UUID
+        String uuid = offlineUUID(user);
+
+        // 10. Command
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java);
+
+        // macOS: GLFW/LWJGL requires this or it crashes instantly
+        if (osName().equals("osx")) {
+            cmd.add("-XstartOnFirstThread");
+        }
+
+        // Java 21+: suppress JNA/JOML restricted access warnings
+        String javaVer = System.getProperty("java.version", "");
+        if (!javaVer.startsWith("1.") && !javaVer.startsWith("8")) {
+            try {
+                int major = Integer.parseInt(javaVer.split("[^0-9]")[0]);
+                if (major >= 21) {
+                    cmd.add("--enable-native-access=ALL-UNNAMED");
+                }
+            } catch (NumberFormatException ignored) {
+                // if we can't parse, add it anyway to be safe
+                cmd.add("--enable-native-access=ALL-UNNAMED");
+            }
+        }
+
+        cmd.add("-Xmx" + ram + "M"); cmd.add("-Xms256M");
+        cmd.add("-Djava.library.path=" + plan.natives);
+        cmd.add("-Dminecraft.launcher.brand=CatLauncher");
+        cmd.add("-Dminecraft.launcher.version=" + VER);
+        cmd.add("-cp"); cmd.add(plan.classpath); cmd.add(mc);
+
+        String mca = plan.arguments;
+        if (mca != null) {
+            mca = mca.replace("${auth_player_name}", user)
                 .replace("${version_name}", vid)
                 .replace("${game_directory}", ROOT.toAbsolutePath().toString())
                 .replace("${assets_root}", ASS_DIR.toAbsolutePath().toString())
@@ -1063,260 +2153,1113 @@ public class CatLauncher extends JFrame {
         prog(100); status("Running - PID " + proc.pid());
         log("=== PID: " + proc.pid() + " ===");
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
-            String line; while ((line = br.readLine()) != null) log("[MC] " + line);
+        String logName = "game-" + vid.replaceAll("[^A-Za-z0-9._-]", "_");
+        try (LogWriter gameLog = new LogWriter(ROOT.resolve("logs"), logName)) {
+            OutputPump pump = new OutputPump(proc.getInputStream(), gameLog);
+            long reported = 0;
+            for (String line; (line = pump.take()) != null; ) {
+                while (listener.behind()) Thread.sleep(5);      // console behind: the pump thins
+                long d = pump.dropped();
+                if (d > reported) {
+                    log("[" + (d - reported) + " game lines not shown here, see logs/" + logName + ".log]", null);
+                    reported = d;
+                }
+                log("[MC] " + line, null);
+            }
+            if (pump.dropped() > 0) log(pump.dropped() + " game lines were skipped in the console", null);
         }
-        log("=== Exited (code " + proc.waitFor() + ") ===");
+        int code = proc.waitFor();
+        log("=== Exited (code " + code + ") ===");
         status("Ready"); prog(0);
+        return code;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  LAUNCH PLAN — everything launchGame derives from the version JSON
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * The resolved classpath, main class, argument template, asset id and
+     * natives directory for one version, saved next to its JSON. The key is
+     * the JSON's sha1 plus the OS, so an edited JSON or a copied data
+     * directory re-resolves instead of launching with a stale plan.
+     */
+    static final class LaunchPlan {
+        static final int FORMAT = 1;
+
+        final String key, classpath, mainClass, arguments, assetId;
+        final Path natives;
+
+        LaunchPlan(String key, String classpath, String mainClass, String arguments,
+                   String assetId, Path natives) {
+            this.key = key; this.classpath = classpath; this.mainClass = mainClass;
+            this.arguments = arguments; this.assetId = assetId; this.natives = natives;
+        }
+
+        static String key(byte[] versionJson, String os) {
+            return hex(sha1Digest().digest(versionJson)) + "-" + os + "-" + FORMAT;
+        }
+
+        /**
+         * The saved plan if it was made for {@code key} and every classpath
+         * entry is still on disk; otherwise null and the caller re-resolves.
+         */
+        static LaunchPlan load(Path f, String key) {
+            if (!Files.exists(f)) return null;
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(f)) { p.load(in); }
+            catch (IOException | IllegalArgumentException e) { return null; }
+            if (!key.equals(p.getProperty("key"))) return null;
+            String cp = p.getProperty("classpath"), mc = p.getProperty("mainClass");
+            String aid = p.getProperty("assetId"), nd = p.getProperty("natives");
+            if (cp == null || mc == null || aid == null || nd == null) return null;
+            for (String e : cp.split(java.util.regex.Pattern.quote(File.pathSeparator)))
+                if (!Files.exists(Paths.get(e))) return null;
+            if (!Files.isDirectory(Paths.get(nd))) return null;
+            return new LaunchPlan(key, cp, mc, p.getProperty("arguments"), aid, Paths.get(nd));
+        }
+
+        void save(Path f) throws IOException {
+            Properties p = new Properties();
+            p.setProperty("key", key);
+            p.setProperty("classpath", classpath);
+            p.setProperty("mainClass", mainClass);
+            if (arguments != null) p.setProperty("arguments", arguments);
+            p.setProperty("assetId", assetId);
+            p.setProperty("natives", natives.toString());
+            ByteArrayOutputStream bo = new ByteArrayOutputStream();
+            p.store(bo, APP + " launch plan");
+            writeAtomic(f, bo.toByteArray());
+        }
     }
 
     // ═══════════════════════════════════════════════════════════════════
     //  CLIENT URL RESOLVER
     // ═══════════════════════════════════════════════════════════════════
-    String findClientUrl(String vj, String vid) {
+    String findClientUrl(Object vj, String vid) {
         // 1. downloads.client.url
-        String u = jdn(vj, "downloads", "client", "url");
+        String u = Json.str(vj, "downloads", "client", "url");
         if (u != null && u.startsWith("http")) return u;
-        // 2. Regex
-        Matcher m = Pattern.compile(
-            "\"client\"\\s*:\\s*\\{[^}]*\"url\"\\s*:\\s*\"(https://[^\"]+\\.jar)\"",
-            Pattern.DOTALL).matcher(vj);
-        if (m.find()) return m.group(1);
+        // 2. Any "client" object carrying a jar url
+        u = findUrl(vj, "client", "https://");
+        if (u != null) return u;
         // 3. Any piston jar
-        m = Pattern.compile("\"url\"\\s*:\\s*\"(https://piston-data\\.mojang\\.com/[^\"]+\\.jar)\"")
-            .matcher(vj);
-        if (m.find()) return m.group(1);
+        u = findUrl(vj, null, "https://piston-data.mojang.com/");
+        if (u != null) return u;
         // 4. SHA1 construct
-        String sha = jdn(vj, "downloads", "client", "sha1");
+        String sha = Json.str(vj, "downloads", "client", "sha1");
         if (sha != null) return "https://piston-data.mojang.com/v1/objects/" + sha + "/client.jar";
         // 5. Legacy S3
         u = "https://s3.amazonaws.com/Minecraft.Download/versions/" + vid + "/" + vid + ".jar";
-        try {
-            HttpURLConnection t = (HttpURLConnection) URI.create(u).toURL().openConnection();
-            t.setRequestMethod("HEAD"); t.setConnectTimeout(5000);
-            if (t.getResponseCode() == 200) { t.disconnect(); return u; }
-            t.disconnect();
-        } catch (Exception ignored) {}
+        try (Http.Response r = Http.send("HEAD", u)) { if (r.code == 200) return u; }
+        catch (Exception ignored) {}
+        return null;
+    }
+
+    /** Depth-first search for a "url" ending in .jar, optionally only under key {@code under}. */
+    static String findUrl(Object n, String under, String prefix) {
+        if (n instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) n).entrySet()) {
+                Object v = e.getValue();
+                if (under == null && "url".equals(e.getKey()) && v instanceof String) {
+                    String s = (String) v;
+                    if (s.startsWith(prefix) && s.endsWith(".jar")) return s;
+                }
+                String r = findUrl(v, under != null && under.equals(e.getKey()) ? null : under, prefix);
+                if (r != null) return r;
+            }
+        } else if (n instanceof List) {
+            for (Object v : (List<?>) n) {
+                String r = findUrl(v, under, prefix);
+                if (r != null) return r;
+            }
+        }
         return null;
     }
 
     // ═══════════════════════════════════════════════════════════════════
     //  LIBRARY RESOLVER
     // ═══════════════════════════════════════════════════════════════════
-    List<Path> resolveLibs(String vj) {
+    /** Classpath entries for this OS; missing files go to {@code plan}, natives jars to {@code natives}. */
+    List<Path> resolveLibs(Object vj, List<Artifact> plan, List<Artifact> natives) {
         List<Path> out = new ArrayList<>();
         String os = osName();
-        int li = vj.indexOf("\"libraries\""); if (li < 0) return out;
-        int as = vj.indexOf('[', li);         if (as < 0) return out;
-        int depth = 0, objS = -1;
-        for (int i = as + 1; i < vj.length(); i++) {
-            char c = vj.charAt(i);
-            if (c == '{') { if (depth == 0) objS = i; depth++; }
-            else if (c == '}') {
-                depth--;
-                if (depth == 0 && objS >= 0) { resolveLib(vj.substring(objS, i + 1), out, os); objS = -1; }
-            }
-            else if (c == ']' && depth == 0) break; // end of libraries array
-        }
+        for (Object lib : Json.arr(vj, "libraries")) resolveLib(Json.obj(lib), out, plan, natives, os);
         log("Libraries: " + out.size());
         return out;
     }
 
-    void resolveLib(String lib, List<Path> out, String os) {
-        if (lib.contains("\"rules\"") && !rulesOk(lib, os)) return;
-        // Artifact
-        String path = jn(lib, "artifact", "path", null);
-        String url  = jn(lib, "artifact", "url",  null);
-        if (path != null) {
-            Path f = LIB_DIR.resolve(path.replace("/", File.separator));
-            out.add(f);
-            if (!Files.exists(f) && url != null) {
-                try { Files.createDirectories(f.getParent()); download(url, f);
-                      log("  > " + f.getFileName()); }
-                catch (Exception e) { log("  x " + e.getMessage()); }
-            }
-        }
-        // Maven name fallback
-        if (path == null && lib.contains("\"name\"")) {
-            String name = js(lib, "name");
-            if (name != null) {
-                String mp = maven(name);
-                if (mp != null) {
-                    String ub = js(lib, "url");
-                    Path f = LIB_DIR.resolve(mp.replace("/", File.separator));
-                    out.add(f);
-                    if (!Files.exists(f)) {
-                        String[] repos = { ub, "https://libraries.minecraft.net/",
-                                           "https://repo1.maven.org/maven2/" };
-                        boolean ok = false;
-                        for (String r : repos) {
-                            if (r == null) continue;
-                            if (!r.endsWith("/")) r += "/";
-                            try { Files.createDirectories(f.getParent());
-                                  download(r + mp, f); log("  > " + f.getFileName()); ok = true; break; }
-                            catch (Exception ignored) {}
-                        }
-                        if (!ok) log("  x " + name);
-                    }
-                }
-            }
+    void resolveLib(Map<String, Object> lib, List<Path> out, List<Artifact> plan,
+                    List<Artifact> natives, String os) {
+        for (Artifact a : libArtifacts(lib, os)) {
+            out.add(a.path);
+            if (!Files.exists(a.path)) plan.add(a);
+            if (a.isNative) natives.add(a);
         }
-        // Natives
-        String nk = "natives-" + os;
-        if (lib.contains("\"classifiers\"") && lib.contains(nk)) {
-            String np = clf(lib, nk, "path"), nu = clf(lib, nk, "url");
-            if (np != null) {
-                Path nf = LIB_DIR.resolve(np.replace("/", File.separator));
-                out.add(nf);
-                if (!Files.exists(nf) && nu != null) {
-                    try { Files.createDirectories(nf.getParent()); download(nu, nf);
-                          log("  > [n] " + nf.getFileName()); }
-                    catch (Exception e) { log("  x native: " + e.getMessage()); }
+    }
+
+    /** Client jar download; size and sha1 only describe the file at downloads.client.url. */
+    Artifact clientArtifact(Object vj, String vid, Path cjar) {
+        String cu = findClientUrl(vj, vid);
+        if (cu == null) throw new RuntimeException("No client URL for " + vid);
+        Map<String, Object> c = Json.obj(vj, "downloads", "client");
+        return cu.equals(Json.str(c, "url"))
+            ? new Artifact(cu, cjar, Json.str(c, "sha1"), Json.num(c, -1, "size"))
+            : new Artifact(cu, cjar, null, -1);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  DOWNLOAD SCHEDULER — thread per file, gated by an adaptive limiter
+    // ═══════════════════════════════════════════════════════════════════
+    /** Executors of in-progress downloads, shut down when the window closes. */
+    final Set<ExecutorService> activeDownloads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Fetches every artifact of a plan concurrently and waits for all of
+     * them. Duplicate paths are fetched once. Progress moves from {@code p0}
+     * to {@code p1}. Returns the artifacts that could not be fetched.
+     */
+    List<Artifact> fetchAll(List<Artifact> plan, int p0, int p1) {
+        Map<Path, Artifact> unique = new LinkedHashMap<>();
+        for (Artifact a : plan) unique.putIfAbsent(a.path, a);
+        if (unique.isEmpty()) return Collections.emptyList();
+        int total = unique.size();
+        log("Downloading " + total + " files...");
+        AtomicInteger done = new AtomicInteger();
+        return fetchParallel(unique.values(), ConcurrencyLimiter.LIBRARIES, (a, err) -> {
+            if (err == null) log("  > " + (a.isNative ? "[n] " : "") + a.path.getFileName());
+            else log("  x " + (a.isNative ? "native: " : "") + a.path.getFileName() + ": " + err.getMessage());
+            int d = done.incrementAndGet();
+            prog(p0 + (p1 - p0) * d / total);
+        }, () -> status("Downloading: " + done.get() + "/" + total
+                        + " (" + ConcurrencyLimiter.LIBRARIES.metrics() + ")"));
+    }
+
+    /**
+     * Core download loop shared by libraries and assets. Runs one task per
+     * artifact on {@link #newTaskExecutor}, with {@code limiter} deciding how
+     * many are in flight and learning from each result. {@code onDone} gets
+     * every artifact with its error (null on success); {@code tick} runs
+     * about five times a second on the calling thread. Interrupting the
+     * caller, or {@link #cancelDownloads}, stops the batch.
+     */
+    List<Artifact> fetchParallel(Collection<Artifact> items, ConcurrencyLimiter limiter,
+                                 java.util.function.BiConsumer<Artifact, Exception> onDone, Runnable tick) {
+        List<Artifact> failed = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService exec = newTaskExecutor("download");
+        activeDownloads.add(exec);
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        long nextTick = 0;
+        try {
+            for (Artifact a : items) {
+                while (!limiter.tryAcquire(200)) { tick.run(); nextTick = now() + 200; }
+                if (now() >= nextTick) { tick.run(); nextTick = now() + 200; }
+                futures.add(exec.submit(() -> {
+                    long t0 = System.nanoTime(), got = 0;
+                    Exception err = null;
+                    try { got = fetchArtifact(a); }
+                    catch (Exception e) { err = e; failed.add(a); }
+                    // Queueing on the per-host cap is ours, not the network's: keep it out of the RTT
+                    finally { limiter.release(t0 + Http.takeHostWaitNanos(), got, err == null); }
+                    onDone.accept(a, err);
+                }));
+            }
+            for (Future<?> f : futures) {
+                while (true) {
+                    try { f.get(200, TimeUnit.MILLISECONDS); break; }
+                    catch (TimeoutException e) { tick.run(); }
+                    catch (ExecutionException | CancellationException e) { break; }
                 }
             }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            log("Downloads cancelled");
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        } finally {
+            // .part files stay behind and resume on the next launch
+            exec.shutdownNow();
+            try { exec.awaitTermination(5, TimeUnit.SECONDS); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            activeDownloads.remove(exec);
         }
+        tick.run();
+        return failed;
     }
 
-    String maven(String c) {
-        String[] p = c.split(":"); if (p.length < 3) return null;
-        return p[0].replace('.', '/') + "/" + p[1] + "/" + p[2] + "/" + p[1] + "-" + p[2] + ".jar";
-    }
+    static long now() { return System.currentTimeMillis(); }
 
-    boolean rulesOk(String j, String os) {
-        boolean ok = false;
-        Matcher m = Pattern.compile("\"action\"\\s*:\\s*\"(allow|disallow)\"").matcher(j);
-        while (m.find()) {
-            String a = m.group(1);
-            int end = Math.min(m.end() + 200, j.length());
-            String ctx = j.substring(m.start(), end);
-            if (ctx.contains("\"os\"")) { if (ctx.contains("\"" + os + "\"")) ok = a.equals("allow"); }
-            else ok = a.equals("allow");
-        }
-        return ok;
+    /** Cancel every running download; used when the launcher window closes. */
+    void cancelDownloads() {
+        for (ExecutorService e : activeDownloads) e.shutdownNow();
     }
 
-    void extractNatives(Path nd) {
+    /**
+     * Thread-per-task executor: virtual threads on Java 21+ (looked up
+     * reflectively so the launcher still builds on 11), daemon platform
+     * threads otherwise. Callers bound concurrency themselves.
+     */
+    static ExecutorService newTaskExecutor(String name) {
         try {
-            Files.walk(LIB_DIR).filter(p -> p.toString().endsWith(".jar") &&
-                (p.toString().contains("native") || p.toString().contains("lwjgl")))
-            .forEach(jar -> {
-                try (ZipInputStream z = new ZipInputStream(Files.newInputStream(jar))) {
-                    ZipEntry e;
-                    while ((e = z.getNextEntry()) != null) {
-                        String n = e.getName();
-                        if (n.endsWith(".dll") || n.endsWith(".so") || n.endsWith(".dylib") || n.endsWith(".jnilib")) {
-                            Path o = nd.resolve(Paths.get(n).getFileName().toString());
-                            if (!Files.exists(o)) Files.copy(z, o);
-                        }
-                    }
-                } catch (Exception ignored) {}
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
             });
-        } catch (Exception e) { log("Natives: " + e.getMessage()); }
+        }
     }
 
-    // ═══════════════════════════════════════════════════════════════════
-    //  ASSET OBJECT DOWNLOADER — 64-thread parallel blitz
-    // ═══════════════════════════════════════════════════════════════════
-    static final String RESOURCES_URL = "https://resources.download.minecraft.net/";
-
-    void downloadAssetObjects(String indexJson) {
-        // Extract all hashes
-        Pattern hashPat = Pattern.compile("\"hash\"\\s*:\\s*\"([0-9a-f]{40})\"");
-        Matcher m = hashPat.matcher(indexJson);
-        List<String> allHashes = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-        while (m.find()) {
-            String h = m.group(1);
-            if (seen.add(h)) allHashes.add(h); // deduplicate
+    /**
+     * Adaptive in-flight limit for one class of downloads. Request times are
+     * averaged over short windows and compared with the best recent window:
+     * while the window stays within {@code TOLERANCE} of that baseline the
+     * limit grows by about sqrt(limit); once queueing inflates latency it
+     * shrinks in proportion. A window with {@code ERROR_THRESHOLD} or more
+     * failures cuts it multiplicatively (at most once a second), so a flaky
+     * link backs off quickly — AIMD on errors, gradient on latency. Growth
+     * only happens while the limit is in use.
+     */
+    static final class ConcurrencyLimiter {
+        static final ConcurrencyLimiter LIBRARIES = new ConcurrencyLimiter("libraries", 8, 2, 64);
+        static final ConcurrencyLimiter ASSETS    = new ConcurrencyLimiter("assets", 16, 4, 256);
+
+        static final double TOLERANCE = 1.5, SMOOTHING = 0.2, BACKOFF = 0.7, ERROR_THRESHOLD = 0.05;
+        static final long WINDOW_MS = 250;
+
+        final String name;
+        private final int min, max;
+        private double limit;
+        private int inFlight, peakInFlight;
+        private double shortRttMs, longRttMs, errorRate, bytesPerSec;
+        private long completed, failed, lastBackoff;
+        // current window
+        private long windowStart = now(), windowBytes;
+        private double windowRttSum;
+        private int windowOk, windowErr;
+
+        /** {@code max} is clamped to {@link Http#MAX_PER_HOST}: slots beyond it would only queue. */
+        ConcurrencyLimiter(String name, int initial, int min, int max) {
+            this.name = name; this.min = min;
+            this.max = Math.max(min, Math.min(max, Http.MAX_PER_HOST));
+            this.limit = Math.min(initial, this.max);
         }
-        if (allHashes.isEmpty()) { log("No asset objects in index"); return; }
 
-        // Pre-create ALL prefix directories (00-ff) upfront
-        Path objBase = ASS_DIR.resolve("objects");
-        for (int i = 0; i < 256; i++) {
-            try { Files.createDirectories(objBase.resolve(String.format("%02x", i))); }
-            catch (Exception ignored) {}
+        synchronized boolean tryAcquire(long ms) throws InterruptedException {
+            long deadline = now() + ms;
+            while (inFlight >= (int) limit) {
+                long left = deadline - now();
+                if (left <= 0) return false;
+                wait(left);
+            }
+            peakInFlight = Math.max(peakInFlight, ++inFlight);
+            return true;
         }
 
-        // Filter to missing only
-        List<String> needed = new ArrayList<>();
-        for (String h : allHashes) {
-            if (!Files.exists(objBase.resolve(h.substring(0, 2)).resolve(h)))
-                needed.add(h);
+        /** Return a slot and record how the request that used it went. */
+        synchronized void release(long startNanos, long bytes, boolean ok) {
+            inFlight--;
+            long t = now();
+            if (ok) {
+                completed++;
+                windowOk++;
+                windowBytes += bytes;
+                windowRttSum += (System.nanoTime() - startNanos) / 1e6;
+            } else {
+                failed++;
+                windowErr++;
+            }
+            if (t - windowStart >= WINDOW_MS && windowOk + windowErr >= 4) closeWindow(t);
+            notifyAll();
         }
 
-        log("Assets: " + allHashes.size() + " total, " + needed.size() + " to download");
-        if (needed.isEmpty()) { log("All assets cached!"); return; }
-
-        // Blast with 64 parallel threads
-        int nThreads = Math.min(64, needed.size());
-        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
-        AtomicInteger done = new AtomicInteger(0);
-        AtomicInteger failed = new AtomicInteger(0);
-        AtomicLong bytes = new AtomicLong(0);
-        int total = needed.size();
-        long startMs = System.currentTimeMillis();
-
-        // Update status bar every 200ms from a timer thread
-        Thread ticker = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                int d = done.get();
-                if (d >= total) break;
-                long mb = bytes.get() / (1024 * 1024);
-                long elapsed = Math.max(1, (System.currentTimeMillis() - startMs) / 1000);
-                status("Assets: " + d + "/" + total + " (" + mb + " MB, "
-                       + (mb / elapsed) + " MB/s)");
-                try { Thread.sleep(200); } catch (InterruptedException e) { break; }
-            }
-        }, "asset-ticker");
-        ticker.setDaemon(true);
-        ticker.start();
-
-        // Submit all downloads
-        CountDownLatch latch = new CountDownLatch(needed.size());
-        for (String hash : needed) {
-            pool.submit(() -> {
-                try {
-                    String pre = hash.substring(0, 2);
-                    Path file = objBase.resolve(pre).resolve(hash);
-                    bytes.addAndGet(fastDownload(RESOURCES_URL + pre + "/" + hash, file));
-                } catch (Exception e) {
-                    failed.incrementAndGet();
+        private void closeWindow(long t) {
+            double secs = (t - windowStart) / 1000.0;
+            bytesPerSec = bytesPerSec == 0 ? windowBytes / secs : bytesPerSec * 0.7 + windowBytes / secs * 0.3;
+            double errs = windowErr / (double) (windowOk + windowErr);
+            errorRate = errorRate * 0.7 + 0.3 * errs;
+            if (errs >= ERROR_THRESHOLD) {
+                if (t - lastBackoff >= 1000) { limit = Math.max(min, limit * BACKOFF); lastBackoff = t; }
+            } else if (windowOk > 0) {
+                shortRttMs = windowRttSum / windowOk;
+                // Baseline is the best recent window, creeping up ~0.4%/s so a path
+                // that got slower for good is eventually accepted as normal
+                longRttMs = longRttMs == 0 ? shortRttMs : Math.min(shortRttMs, longRttMs * 1.001);
+                if (peakInFlight >= limit / 2) {
+                    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttMs / shortRttMs));
+                    double target = limit * gradient + Math.sqrt(limit);
+                    limit = Math.max(min, Math.min(max, limit * (1 - SMOOTHING) + target * SMOOTHING));
                 }
-                done.incrementAndGet();
-                latch.countDown();
-            });
+            }
+            windowStart = t; windowBytes = 0; windowRttSum = 0;
+            windowOk = windowErr = 0; peakInFlight = inFlight;
         }
 
-        // Wait for completion
-        try { latch.await(); } catch (InterruptedException ignored) {}
-        pool.shutdown();
-        ticker.interrupt();
-
+        synchronized Metrics metrics() {
+            return new Metrics(name, (int) limit, inFlight, shortRttMs, longRttMs,
+                               bytesPerSec, errorRate, completed, failed);
+        }
+    }
+
+    /** Point-in-time view of a {@link ConcurrencyLimiter}. */
+    static final class Metrics {
+        final String name;
+        final int limit, inFlight;
+        final double rttMs, baselineRttMs, bytesPerSec, errorRate;
+        final long completed, failed;
+
+        Metrics(String name, int limit, int inFlight, double rttMs, double baselineRttMs,
+                double bytesPerSec, double errorRate, long completed, long failed) {
+            this.name = name; this.limit = limit; this.inFlight = inFlight;
+            this.rttMs = rttMs; this.baselineRttMs = baselineRttMs; this.bytesPerSec = bytesPerSec;
+            this.errorRate = errorRate; this.completed = completed; this.failed = failed;
+        }
+
+        /** Short form for the status bar. */
+        @Override public String toString() {
+            return inFlight + "/" + limit + " in flight, " + Math.round(rttMs) + " ms, "
+                 + String.format("%.1f", bytesPerSec / (1024 * 1024)) + " MB/s"
+                 + (errorRate >= 0.01 ? ", " + Math.round(errorRate * 100) + "% err" : "");
+        }
+    }
+
+    /**
+     * One file the game needs, with every mirror that may serve it and
+     * whatever integrity data the JSON carried (sha1 null / size -1 if not).
+     */
+    static final class Artifact {
+        final String[] urls;
+        final Path path;
+        final String sha1;
+        final long size;
+        final boolean isNative;
+        /** Entry prefixes not to unpack; null unless natives are extracted from this jar. */
+        final List<String> extractExclude;
+
+        Artifact(String[] urls, Path path, String sha1, long size, List<String> extractExclude) {
+            this.urls = urls; this.path = path; this.sha1 = sha1; this.size = size;
+            this.isNative = extractExclude != null; this.extractExclude = extractExclude;
+        }
+
+        Artifact(String url, Path path, String sha1, long size) {
+            this(url == null ? new String[0] : new String[]{ url }, path, sha1, size, null);
+        }
+    }
+
+    /** Library jar (or Maven fallback) and OS natives for one entry, honouring its rules. */
+    static List<Artifact> libArtifacts(Map<String, Object> lib, String os) {
+        List<Artifact> out = new ArrayList<>(2);
+        if (lib.containsKey("rules") && !rulesOk(Json.arr(lib, "rules"), os)) return out;
+        List<String> exclude = new ArrayList<>();
+        for (Object x : Json.arr(lib, "extract", "exclude")) if (x instanceof String) exclude.add((String) x);
+        // Artifact — 1.19+ ship natives as plain "natives-<os>[-<arch>]" classifier jars. Every
+        // arch of an OS passes its rules and all of them hold lwjgl.dll, so only this CPU's is unpacked
+        Map<String, Object> art = Json.obj(lib, "downloads", "artifact");
+        String path = Json.str(art, "path");
+        String name = Json.str(lib, "name");
+        if (path != null) {
+            String url = Json.str(art, "url");
+            boolean unpack = name != null && name.contains(":natives-")
+                          && nativesArchOk(name, System.getProperty("os.arch", ""));
+            out.add(new Artifact(url == null ? new String[0] : new String[]{ url },
+                                 LIB_DIR.resolve(path.replace("/", File.separator)),
+                                 Json.str(art, "sha1"), Json.num(art, -1, "size"),
+                                 unpack ? exclude : null));
+        }
+        // Maven name fallback — not for natives-only entries (lwjgl-platform etc.), which have no plain jar
+        boolean nativesOnly = lib.containsKey("natives") || !Json.obj(lib, "downloads", "classifiers").isEmpty();
+        String mp = path == null && name != null && !nativesOnly ? maven(name) : null;
+        if (mp != null) {
+            String ub = Json.str(lib, "url");
+            List<String> urls = new ArrayList<>(3);
+            for (String r : new String[]{ ub, "https://libraries.minecraft.net/",
+                                          "https://repo1.maven.org/maven2/" }) {
+                if (r == null) continue;
+                urls.add((r.endsWith("/") ? r : r + "/") + mp);
+            }
+            out.add(new Artifact(urls.toArray(new String[0]),
+                                 LIB_DIR.resolve(mp.replace("/", File.separator)), null, -1, null));
+        }
+        // Natives
+        Map<String, Object> nat = Json.obj(lib, "downloads", "classifiers", nativesKey(lib, os));
+        String np = Json.str(nat, "path"), nu = Json.str(nat, "url");
+        if (np != null)
+            out.add(new Artifact(nu == null ? new String[0] : new String[]{ nu },
+                                 LIB_DIR.resolve(np.replace("/", File.separator)),
+                                 Json.str(nat, "sha1"), Json.num(nat, -1, "size"), exclude));
+        return out;
+    }
+
+    /** Resolver invariants checked on canned entries; the failures, empty if all hold. */
+    static List<String> selfCheck() {
+        List<String> bad = new ArrayList<>();
+        // 1.8.9–1.12.2 list platform jars with classifiers only: a Maven fallback would 404 forever
+        Map<String, Object> lib = Json.obj(Json.parse("{\"name\":\"net.java.jinput:jinput-platform:2.0.5\","
+            + "\"natives\":{\"linux\":\"natives-linux\",\"osx\":\"natives-osx\",\"windows\":\"natives-windows\"},"
+            + "\"downloads\":{\"classifiers\":{\"natives-linux\":{\"path\":\"l.jar\"},"
+            + "\"natives-osx\":{\"path\":\"o.jar\"},\"natives-windows\":{\"path\":\"w.jar\"}}}}"));
+        for (String os : new String[]{ "linux", "osx", "windows" }) {
+            List<Artifact> got = libArtifacts(lib, os);
+            if (got.size() != 1 || !got.get(0).isNative)
+                bad.add("classifier-only library on " + os + ": " + got.size() + " artifacts, expected its natives jar only");
+        }
+        // 1.19+ list several CPUs per OS; each machine must unpack exactly one of them
+        String[] windows = { "natives-windows", "natives-windows-arm64", "natives-windows-x86" };
+        for (String arch : new String[]{ "amd64", "aarch64", "x86" }) {
+            int n = 0;
+            for (String c : windows) if (nativesArchOk("org.lwjgl:lwjgl:3.3.1:" + c, arch)) n++;
+            if (n != 1) bad.add("windows natives on " + arch + ": " + n + " classifiers unpacked, expected 1");
+        }
+        return bad;
+    }
+
+    /** Tries each mirror in order; the last failure is rethrown. */
+    static long fetchArtifact(Artifact a) throws IOException {
+        Path blob = blobFor(a);
+        if (blob == null) return fetchFrom(a, a.path);
+        for (;;) {
+            // Artifacts sharing a sha1 share one .part: whoever claims the blob downloads it
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> running = BLOBS_IN_FLIGHT.putIfAbsent(blob, mine);
+            if (running != null) {
+                try { running.get(); }
+                catch (ExecutionException e) { /* that download failed: claim it and try ours */ }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted: " + a.path.getFileName());
+                }
+                if (!Files.exists(blob)) continue;
+                linkBlob(blob, a.path);
+                return 0;
+            }
+            try {
+                // A blob of the wrong size was damaged in place through one of its links
+                if (Files.exists(blob) && a.size >= 0 && Files.size(blob) != a.size) Files.delete(blob);
+                long got = Files.exists(blob) ? 0 : fetchFrom(a, blob);
+                mine.complete(null);
+                linkBlob(blob, a.path);
+                return got;
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally { BLOBS_IN_FLIGHT.remove(blob, mine); }
+        }
+    }
+
+    /** Blobs being fetched right now, so two artifacts with one sha1 never write the same .part. */
+    static final ConcurrentHashMap<Path, CompletableFuture<Void>> BLOBS_IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /**
+     * The LAN mirror first, if one is set and has the file, then the
+     * artifact's own URLs. The mirror gets a single attempt: a miss or a bad
+     * hash falls straight through, and a mirror that cannot be reached is
+     * skipped for {@link #MIRROR_RETRY_MS}.
+     */
+    static long fetchFrom(Artifact a, Path dest) throws IOException {
+        String m = mirrorUrl(a);
+        if (m != null) {
+            try { return fetchOnce(m, dest, a.sha1, a.size); }
+            catch (InterruptedIOException e) { throw e; }
+            catch (ConnectException | HttpConnectTimeoutException e) { mirrorDownUntil = now() + MIRROR_RETRY_MS; }
+            catch (IOException e) { /* not on the mirror; upstream it is */ }
+        }
+        return fetchFrom(a.urls, dest, a.sha1, a.size);
+    }
+
+    static long fetchFrom(String[] urls, Path dest, String sha1, long size) throws IOException {
+        IOException last = new IOException("no download url for " + dest.getFileName());
+        for (String u : urls) {
+            try { return fetch(u, dest, sha1, size); }
+            catch (IOException e) { last = e; }
+        }
+        throw last;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  CONTENT STORE — one copy of each blob, keyed by sha1
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Where the bytes of {@code a} live in the shared store: STORE_DIR/aa/sha1.
+     * Null when there is no sha1 to key on, or when the artifact is an asset
+     * object — assets/objects already uses exactly this layout.
+     */
+    static Path blobFor(Artifact a) {
+        if (a.sha1 == null || a.sha1.length() != 40) return null;
+        if (a.path.startsWith(ASS_DIR.resolve("objects"))) return null;
+        String h = a.sha1.toLowerCase(Locale.ROOT);
+        return STORE_DIR.resolve(h.substring(0, 2)).resolve(h);
+    }
+
+    /**
+     * Make {@code dest} show the blob's bytes: a hard link where the
+     * filesystem allows (no extra space), otherwise a copy. Swapped in
+     * atomically so a half-made link is never seen at {@code dest}.
+     */
+    static void linkBlob(Path blob, Path dest) throws IOException {
+        Files.createDirectories(dest.getParent());
+        Path tmp = dest.resolveSibling(dest.getFileName() + ".link");
+        Files.deleteIfExists(tmp);
+        try { Files.createLink(tmp, blob); }
+        catch (IOException | UnsupportedOperationException e) { Files.copy(blob, tmp); }
+        try { Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        catch (AtomicMoveNotSupportedException e) { Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING); }
+    }
+
+    /** Classifier name for this OS: natives.{os} with ${arch} filled in, else natives-{os}. */
+    static String nativesKey(Map<String, Object> lib, String os) {
+        String k = Json.str(lib, "natives", os);
+        if (k == null) return "natives-" + os;
+        return k.replace("${arch}", System.getProperty("os.arch", "").contains("64") ? "64" : "32");
+    }
+
+    /** False for a {@code natives-<os>-<arch>} classifier built for another CPU than {@code arch}. */
+    static boolean nativesArchOk(String name, String arch) {
+        int i = name.lastIndexOf(":natives-");
+        if (i < 0) return true;
+        String c = name.substring(i + ":natives-".length());
+        int dash = c.indexOf('-');
+        return (dash < 0 ? "" : c.substring(dash + 1)).equals(nativesArchSuffix(arch));
+    }
+
+    /** Mojang's classifier suffix for an os.arch value; x86-64 has none. */
+    static String nativesArchSuffix(String arch) {
+        switch (arch.toLowerCase(Locale.ROOT)) {
+            case "aarch64": case "arm64": return "arm64";
+            case "x86": case "i386": case "i486": case "i586": case "i686": return "x86";
+            case "arm": case "arm32": return "arm32";
+            default: return "";
+        }
+    }
+
+    static String maven(String c) {
+        String[] p = c.split(":"); if (p.length < 3) return null;
+        return p[0].replace('.', '/') + "/" + p[1] + "/" + p[2] + "/" + p[1] + "-" + p[2] + ".jar";
+    }
+
+    /** Mojang rule list: last matching rule wins, no match means disallowed. */
+    static boolean rulesOk(List<Object> rules, String os) {
+        boolean ok = false;
+        for (Object r : rules) {
+            String a = Json.str(r, "action");
+            if (a == null) continue;
+            Object cond = Json.at(r, "os");
+            if (cond != null) { if (os.equals(Json.str(cond, "name"))) ok = a.equals("allow"); }
+            else ok = a.equals("allow");
+        }
+        return ok;
+    }
+
+    /**
+     * Unpacks the shared libraries of exactly the natives jars this version
+     * resolved, honouring each library's extract.exclude, one jar per core.
+     * Libraries land flat in {@code nd} so java.library.path finds them.
+     *
+     * {@code nd/natives.properties} maps each source jar to its fingerprint
+     * and the files it produced. Jars whose fingerprint is unchanged are not
+     * opened; a changed or dropped jar has its old files removed first, and
+     * any unchanged jar that had produced one of those names is unpacked again.
+     */
+    void extractNatives(Path nd, List<Artifact> natives) {
+        Path stampFile = nd.resolve("natives.properties");
+        Properties stamp = new Properties();
+        if (Files.exists(stampFile))
+            try (InputStream in = Files.newInputStream(stampFile)) { stamp.load(in); }
+            catch (IOException | IllegalArgumentException e) { stamp.clear(); }
+
+        Map<String, String> fingerprints = new LinkedHashMap<>();
+        List<Artifact> changed = new ArrayList<>();
+        for (Artifact a : natives) {
+            String fp = nativesFingerprint(a);
+            if (fp == null) continue;                    // not downloaded: nothing to unpack
+            String jar = a.path.toString(), old = stamp.getProperty(jar);
+            fingerprints.put(jar, fp);
+            if (old == null || !old.split("/", 2)[0].equals(fp)) changed.add(a);
+        }
+        if (changed.isEmpty() && fingerprints.keySet().equals(stamp.stringPropertyNames())) {
+            log("Natives: up to date");
+            return;
+        }
+        Set<String> stale = new HashSet<>(), removed = new HashSet<>();
+        for (Artifact a : changed) stale.add(a.path.toString());
+        for (String jar : stamp.stringPropertyNames())   // drop what changed or dropped jars produced
+            if (!fingerprints.containsKey(jar) || stale.contains(jar)) {
+                String[] parts = stamp.getProperty(jar).split("/");
+                for (int i = 1; i < parts.length; i++) {
+                    removed.add(parts[i]);
+                    try { Files.deleteIfExists(nd.resolve(parts[i])); } catch (IOException ignored) {}
+                }
+                stamp.remove(jar);
+            }
+        for (Artifact a : natives) {                     // unchanged jars that shared a deleted name
+            String jar = a.path.toString(), old = stamp.getProperty(jar);
+            if (old == null || stale.contains(jar)) continue;
+            String[] parts = old.split("/");
+            for (int i = 1; i < parts.length; i++)
+                if (removed.contains(parts[i])) { changed.add(a); stale.add(jar); break; }
+        }
+
+        AtomicInteger files = new AtomicInteger();
+        changed.parallelStream().forEach(a -> {
+            StringBuilder produced = new StringBuilder(fingerprints.get(a.path.toString()));
+            try (ZipFile z = new ZipFile(a.path.toFile())) {
+                for (ZipEntry e : Collections.list(z.entries())) {
+                    String n = e.getName();
+                    if (e.isDirectory() || !isNativeLib(n) || excluded(n, a.extractExclude)) continue;
+                    Path o = nd.resolve(n.substring(n.lastIndexOf('/') + 1));
+                    Path tmp = Files.createTempFile(nd, o.getFileName().toString(), ".tmp");
+                    try (InputStream in = z.getInputStream(e)) {
+                        Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                        Files.move(tmp, o, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        files.incrementAndGet();
+                    } finally { Files.deleteIfExists(tmp); }
+                    produced.append('/').append(o.getFileName());
+                }
+                synchronized (stamp) { stamp.setProperty(a.path.toString(), produced.toString()); }
+            } catch (IOException e) { log("Natives: " + a.path.getFileName() + ": " + e.getMessage()); }
+        });
+        try {
+            ByteArrayOutputStream bo = new ByteArrayOutputStream();
+            stamp.store(bo, APP + " extracted natives");
+            writeAtomic(stampFile, bo.toByteArray());
+        } catch (IOException e) { log("Natives stamp not written: " + e.getMessage()); }
+        log("Natives: " + changed.size() + " of " + fingerprints.size() + " jars unpacked, "
+            + files.get() + " files");
+    }
+
+    /** Metadata sha1 when known, else size and mtime; null if the jar is missing. */
+    static String nativesFingerprint(Artifact a) {
+        try {
+            java.nio.file.attribute.BasicFileAttributes at =
+                Files.readAttributes(a.path, java.nio.file.attribute.BasicFileAttributes.class);
+            return a.sha1 != null ? a.sha1.toLowerCase(Locale.ROOT)
+                                  : at.size() + "-" + at.lastModifiedTime().toMillis();
+        } catch (IOException e) { return null; }
+    }
+
+    static boolean isNativeLib(String n) {
+        return n.endsWith(".dll") || n.endsWith(".so") || n.endsWith(".dylib") || n.endsWith(".jnilib");
+    }
+
+    static boolean excluded(String entry, List<String> exclude) {
+        for (String x : exclude) if (entry.startsWith(x)) return true;
+        return false;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  ASSET OBJECT DOWNLOADER — thread per object, adaptive in-flight count
+    // ═══════════════════════════════════════════════════════════════════
+    static final String RESOURCES_URL = "https://resources.download.minecraft.net/";
+
+    /** Fetches whatever the index lists that is not stored yet; returns how many failed. */
+    int downloadAssetObjects(String indexJson) {
+        Map<String, Long> sizes = assetObjects(indexJson);
+        if (sizes.isEmpty()) { log("No asset objects in index"); return 0; }
+        return downloadAssetObjects(sizes).size();
+    }
+
+    /** Fetches whichever of {@code sizes} (hash → size) are not stored yet; returns the ones that failed. */
+    List<Artifact> downloadAssetObjects(Map<String, Long> sizes) {
+
+        // Filter to missing only — answered from the store index, no per-file stat.
+        // Prefix directories are created on demand by fetch().
+        Path objBase = ASS_DIR.resolve("objects");
+        AssetStore store = AssetStore.of(objBase);
+        List<Artifact> needed = new ArrayList<>();
+        for (Map.Entry<String, Long> e : sizes.entrySet()) {
+            String h = e.getKey(), pre = h.substring(0, 2);
+            if (!store.contains(h))
+                needed.add(new Artifact(RESOURCES_URL + pre + "/" + h, objBase.resolve(pre).resolve(h),
+                                        h, e.getValue()));
+        }
+
+        log("Assets: " + sizes.size() + " total, " + needed.size() + " to download");
+        if (needed.isEmpty()) { log("All assets cached!"); return Collections.emptyList(); }
+
+        AtomicInteger done = new AtomicInteger(0);
+        int total = needed.size();
+        long startMs = System.currentTimeMillis();
+        ConcurrencyLimiter lim = ConcurrencyLimiter.ASSETS;
+        List<Artifact> failed = fetchParallel(needed, lim, (a, err) -> {
+                if (err == null) store.add(a.sha1);
+                done.incrementAndGet();
+            },
+            () -> status("Assets: " + done.get() + "/" + total + " (" + lim.metrics() + ")"));
+
         long elapsed = System.currentTimeMillis() - startMs;
-        long totalMB = bytes.get() / (1024 * 1024);
+        long totalMB = 0;
+        for (Artifact a : needed) if (a.size > 0 && !failed.contains(a)) totalMB += a.size;
+        totalMB /= 1024 * 1024;
         log("Assets complete: " + done.get() + " files, " + totalMB + " MB in "
             + (elapsed / 1000) + "." + (elapsed % 1000 / 100) + "s"
-            + (failed.get() > 0 ? " (" + failed.get() + " failed)" : ""));
+            + (failed.isEmpty() ? "" : " (" + failed.size() + " failed)")
+            + " | " + lim.metrics());
+        return failed;
     }
 
-    /** Lightweight fast download — minimal overhead, 32K buffer */
-    long fastDownload(String urlStr, Path dest) throws IOException {
-        HttpURLConnection c = (HttpURLConnection) URI.create(urlStr).toURL().openConnection();
-        c.setConnectTimeout(10000);
-        c.setReadTimeout(15000);
-        c.setRequestProperty("User-Agent", "CatLauncher/" + VER);
-        c.setRequestProperty("Connection", "keep-alive");
-        long total = 0;
-        try (InputStream in = c.getInputStream();
-             OutputStream out = Files.newOutputStream(dest)) {
-            byte[] buf = new byte[32768]; // 32K buffer
-            int n;
-            while ((n = in.read(buf)) != -1) { out.write(buf, 0, n); total += n; }
+    /**
+     * Which asset objects are on disk, kept in objects/objects.idx as raw
+     * 20-byte sha1 records. Loading sorts them into one array so lookups are
+     * a binary search instead of a stat call; each completed download
+     * appends its record. A missing or torn index is rebuilt with one
+     * directory listing per prefix (no per-file stat). Verify Installation
+     * rebuilds it too, which picks up files removed behind our back.
+     */
+    static final class AssetStore {
+        private static final Map<Path, AssetStore> OPEN = new HashMap<>();
+
+        private final Path objBase, file;
+        private byte[] sorted = new byte[0];          // count × 20, ascending
+        private int count;
+        private final Set<String> recent = new HashSet<>(); // added since load
+
+        private AssetStore(Path objBase) {
+            this.objBase = objBase;
+            this.file = objBase.resolve("objects.idx");
+        }
+
+        static synchronized AssetStore of(Path objBase) {
+            return OPEN.computeIfAbsent(objBase, b -> {
+                AssetStore s = new AssetStore(b);
+                try { if (!s.load()) s.rebuild(); }
+                catch (IOException e) { System.err.println("Asset index: " + e); }
+                return s;
+            });
+        }
+
+        synchronized boolean contains(String hash) {
+            if (recent.contains(hash)) return true;
+            byte[] k = unhex(hash);
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(sorted, mid * 20, k);
+                if (c < 0) lo = mid + 1; else if (c > 0) hi = mid - 1; else return true;
+            }
+            return false;
+        }
+
+        /** Record a freshly written object. */
+        synchronized void add(String hash) {
+            if (!recent.add(hash)) return;
+            try {
+                Files.createDirectories(objBase);
+                Files.write(file, unhex(hash), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) { System.err.println("Asset index: " + e); }
+        }
+
+        /** Re-list the object directories and rewrite the index from what is there. */
+        synchronized void rebuild() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (Files.isDirectory(objBase)) {
+                try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(objBase)) {
+                    for (Path pre : prefixes) {
+                        if (pre.getFileName().toString().length() != 2 || !Files.isDirectory(pre)) continue;
+                        try (DirectoryStream<Path> objs = Files.newDirectoryStream(pre)) {
+                            for (Path o : objs) {
+                                String n = o.getFileName().toString();
+                                if (n.length() == 40 && n.chars().allMatch(c -> Character.digit(c, 16) >= 0))
+                                    out.write(unhex(n));
+                            }
+                        }
+                    }
+                }
+            }
+            setRecords(out.toByteArray());
+            Files.createDirectories(objBase);
+            writeAtomic(file, Arrays.copyOf(sorted, count * 20));
+        }
+
+        private boolean load() throws IOException {
+            if (!Files.exists(file)) return false;
+            byte[] raw = Files.readAllBytes(file);
+            int n = raw.length / 20;
+            setRecords(raw.length % 20 == 0 ? raw : Arrays.copyOf(raw, n * 20)); // drop a torn append
+            if (count != n || raw.length % 20 != 0) writeAtomic(file, Arrays.copyOf(sorted, count * 20));
+            return true;
+        }
+
+        /** Sort and de-duplicate a block of 20-byte records into {@link #sorted}. */
+        private void setRecords(byte[] raw) {
+            int n = raw.length / 20;
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> compareAt(raw, a * 20, raw, b * 20));
+            byte[] out = new byte[n * 20];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (m > 0 && compareAt(raw, order[i] * 20, out, (m - 1) * 20) == 0) continue;
+                System.arraycopy(raw, order[i] * 20, out, m * 20, 20);
+                m++;
+            }
+            sorted = out; count = m;
+            recent.clear();
+        }
+
+        private static int compare(byte[] a, int off, byte[] k) { return compareAt(a, off, k, 0); }
+
+        private static int compareAt(byte[] a, int ao, byte[] b, int bo) {
+            for (int i = 0; i < 20; i++) {
+                int c = (a[ao + i] & 0xff) - (b[bo + i] & 0xff);
+                if (c != 0) return c;
+            }
+            return 0;
         }
-        return total;
     }
 
+    /** hash → size for every distinct object in an asset index, in index order. */
+    static Map<String, Long> assetObjects(String indexJson) {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Object o : Json.obj(Json.parse(indexJson), "objects").values()) {
+            String h = Json.str(o, "hash");
+            if (h != null && h.length() == 40) out.putIfAbsent(h, Json.num(o, -1, "size")); // deduplicate
+        }
+        return out;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  GARBAGE COLLECTION — mark from installed versions, sweep the rest
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Locks ROOT/.lock: shared for a launch (held until the game exits),
+     * exclusive for cleanup, so no launcher process sweeps files a running
+     * game still uses. Closing the channel releases the lock. Returns null
+     * when an exclusive lock is not available right now.
+     */
+    static FileChannel lockData(boolean shared) throws IOException {
+        FileChannel ch = FileChannel.open(ROOT.resolve(".lock"), StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (shared) { ch.lock(0, Long.MAX_VALUE, true); return ch; }
+            if (ch.tryLock() != null) return ch;
+        } catch (IOException | RuntimeException e) { ch.close(); throw e; }
+        ch.close();
+        return null;
+    }
+
+    /**
+     * Mark: every file reachable from an installed version JSON — its jar,
+     * libraries and natives for every OS, their store blobs, its asset index
+     * and that index's objects. Sweep candidates: everything else under
+     * libraries/, store/, assets/ and natives/, plus leftover .part files.
+     * The trees are walked in parallel. Returns path → size.
+     */
+    static Map<Path, Long> findGarbage() throws IOException {
+        Set<Path> liveFiles = new HashSet<>();
+        Set<String> liveBlobs = new HashSet<>(), liveIndexes = new HashSet<>(), liveVersions = new HashSet<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(VER_DIR)) {
+            for (Path vDir : ds) {
+                String vid = vDir.getFileName().toString();
+                Path vjp = vDir.resolve(vid + ".json");
+                if (!Files.exists(vjp)) continue;
+                Object vj = Json.parse(new String(Files.readAllBytes(vjp), StandardCharsets.UTF_8));
+                liveVersions.add(vid);
+                String cs = Json.str(vj, "downloads", "client", "sha1");
+                if (cs != null) liveBlobs.add(cs.toLowerCase(Locale.ROOT));
+                for (String os : new String[]{ "windows", "osx", "linux" })
+                    for (Object lib : Json.arr(vj, "libraries"))
+                        for (Artifact a : libArtifacts(Json.obj(lib), os)) {
+                            liveFiles.add(a.path);
+                            if (a.sha1 != null) liveBlobs.add(a.sha1.toLowerCase(Locale.ROOT));
+                        }
+                String aid = Json.str(vj, "assetIndex", "id");
+                if (aid == null) aid = Json.str(vj, "assets");
+                liveIndexes.add((aid != null ? aid : "legacy") + ".json");
+            }
+        }
+        Set<String> liveObjects = new HashSet<>();
+        Path idxDir = ASS_DIR.resolve("indexes");
+        for (String idx : liveIndexes) {
+            Path f = idxDir.resolve(idx);
+            if (Files.exists(f))
+                liveObjects.addAll(assetObjects(new String(Files.readAllBytes(f), StandardCharsets.UTF_8)).keySet());
+        }
+
+        Map<Path, Long> garbage = new ConcurrentHashMap<>();
+        List<Callable<Void>> walks = new ArrayList<>();
+        walks.addAll(sweepWalks(LIB_DIR, p -> liveFiles.contains(p), garbage));
+        walks.addAll(sweepWalks(STORE_DIR, p -> liveBlobs.contains(p.getFileName().toString()), garbage));
+        walks.addAll(sweepWalks(ASS_DIR.resolve("objects"), p -> {
+            String n = p.getFileName().toString();
+            return liveObjects.contains(n) || n.equals("objects.idx");
+        }, garbage));
+        walks.addAll(sweepWalks(idxDir, p -> liveIndexes.contains(p.getFileName().toString()), garbage));
+        walks.addAll(sweepWalks(NAT_DIR, p -> liveVersions.contains(NAT_DIR.relativize(p).getName(0).toString()), garbage));
+        ForkJoinPool.commonPool().invokeAll(walks);
+        return garbage;
+    }
+
+    /**
+     * One walk task per direct child of {@code root}, so big trees are split
+     * across cores. Regular files that are not live, or are download
+     * leftovers (.part, .part.tag, .link, .tmp), are added to {@code out}.
+     */
+    static List<Callable<Void>> sweepWalks(Path root, java.util.function.Predicate<Path> live,
+                                           Map<Path, Long> out) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        if (!Files.isDirectory(root)) return tasks;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(root)) {
+            for (Path child : ds) tasks.add(() -> {
+                try (java.util.stream.Stream<Path> st = Files.find(child, Integer.MAX_VALUE, (p, at) -> {
+                    if (!at.isRegularFile()) return false;
+                    if (leftover(p.getFileName().toString()) || !live.test(p)) out.put(p, at.size());
+                    return false;
+                })) { st.forEach(p -> {}); }
+                return null;
+            });
+        }
+        return tasks;
+    }
+
+    /** A download or link in progress, or one that was abandoned; never a finished file. */
+    static boolean leftover(String name) {
+        return name.endsWith(".part") || name.endsWith(".part.tag")
+            || name.endsWith(".link") || name.endsWith(".tmp");
+    }
+
+    /** Delete the files, prune directories left empty, and resync the asset index. */
+    static int sweep(Set<Path> files) throws IOException {
+        AtomicInteger failed = new AtomicInteger();
+        files.parallelStream().forEach(f -> {
+            try { Files.deleteIfExists(f); } catch (IOException e) { failed.incrementAndGet(); }
+        });
+        Set<Path> roots = new HashSet<>(Arrays.asList(LIB_DIR, STORE_DIR, ASS_DIR.resolve("objects"),
+                                                      ASS_DIR.resolve("indexes"), NAT_DIR));
+        for (Path f : files) {
+            for (Path d = f.getParent(); d != null && !roots.contains(d); d = d.getParent()) {
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(d)) {
+                    if (ds.iterator().hasNext()) break;
+                } catch (IOException e) { break; }
+                try { Files.delete(d); } catch (IOException e) { break; }
+            }
+        }
+        AssetStore.of(ASS_DIR.resolve("objects")).rebuild();
+        return failed.get();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  VERIFY INSTALLATION — parallel re-hash of everything on disk
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Re-hashes every artifact the installed versions reference, spread over
+     * all cores. Corrupt files are deleted so the next launch fetches them
+     * again. Returns the number of corrupt files found.
+     */
+    int verifyInstallation() throws IOException {
+        log("=== Verify installation ====================");
+        status("Verifying...");
+        long startMs = System.currentTimeMillis();
+        List<Artifact> present = new ArrayList<>();
+        int missing = 0;
+        for (Artifact a : installedArtifacts(manifest).values()) {
+            if (Files.exists(a.path)) present.add(a); else missing++;
+        }
+        int total = present.size();
+        AtomicInteger checked = new AtomicInteger();
+        List<Artifact> bad = present.parallelStream().filter(a -> {
+            boolean ok = intact(a);
+            int c = checked.incrementAndGet();
+            if (c % 500 == 0) { status("Verifying: " + c + "/" + total); prog(c * 100 / total); }
+            return !ok;
+        }).collect(java.util.stream.Collectors.toList());
+        for (Artifact a : bad) {
+            log("  x corrupt: " + ROOT.relativize(a.path));
+            Path blob = blobFor(a);  // a hard link shares the damage with its blob
+            try {
+                Files.deleteIfExists(a.path);
+                if (blob != null) Files.deleteIfExists(blob);
+            } catch (IOException e) { log("  x " + e.getMessage()); }
+        }
+        AssetStore.of(ASS_DIR.resolve("objects")).rebuild();
+        long elapsed = System.currentTimeMillis() - startMs;
+        log("Verified " + total + " files in " + (elapsed / 1000) + "." + (elapsed % 1000 / 100) + "s: "
+            + bad.size() + " corrupt (removed), " + missing + " not downloaded");
+        status(bad.isEmpty() ? "Installation OK" : bad.size() + " corrupt files removed");
+        prog(0);
+        return bad.size();
+    }
+
+    /** True if the file matches the recorded size and sha1. */
+    static boolean intact(Artifact a) {
+        try {
+            if (a.size >= 0 && Files.size(a.path) != a.size) return false;
+            if (a.sha1 == null) return true;
+            MessageDigest md = sha1Digest();
+            digestFile(md, a.path);
+            return hex(md.digest()).equalsIgnoreCase(a.sha1);
+        } catch (IOException e) { return false; }
+    }
+
+    /**
+     * Every artifact with integrity data referenced by an installed version:
+     * version JSON, client jar, libraries and natives for this OS, asset
+     * indexes and the objects of every index on disk. Keyed by path.
+     */
+    static Map<Path, Artifact> installedArtifacts(VersionManifest vm) throws IOException {
+        Map<Path, Artifact> out = new LinkedHashMap<>();
+        String os = osName();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(VER_DIR)) {
+            for (Path vDir : ds) {
+                String vid = vDir.getFileName().toString();
+                Path vjp = vDir.resolve(vid + ".json");
+                if (!Files.exists(vjp)) continue;
+                Object vj;
+                try { vj = Json.parse(new String(Files.readAllBytes(vjp), StandardCharsets.UTF_8)); }
+                catch (IllegalArgumentException e) {
+                    out.put(vjp, new Artifact(vm.url(vid), vjp, "", -1)); // unparseable: always corrupt
+                    continue;
+                }
+                if (vm.sha1(vid) != null) out.put(vjp, new Artifact(vm.url(vid), vjp, vm.sha1(vid), -1));
+                Map<String, Object> client = Json.obj(vj, "downloads", "client");
+                addChecked(out, new Artifact(Json.str(client, "url"), vDir.resolve(vid + ".jar"),
+                                             Json.str(client, "sha1"), Json.num(client, -1, "size")));
+                for (Object lib : Json.arr(vj, "libraries"))
+                    for (Artifact a : libArtifacts(Json.obj(lib), os)) addChecked(out, a);
+                String aid = Json.str(vj, "assetIndex", "id");
+                if (aid != null)
+                    addChecked(out, new Artifact(Json.str(vj, "assetIndex", "url"),
+                                                 ASS_DIR.resolve("indexes").resolve(aid + ".json"),
+                                                 Json.str(vj, "assetIndex", "sha1"),
+                                                 Json.num(vj, -1, "assetIndex", "size")));
+            }
+        }
+        Path objBase = ASS_DIR.resolve("objects");
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(ASS_DIR.resolve("indexes"), "*.json")) {
+            for (Path idx : ds) {
+                Map<String, Long> objs;
+                try { objs = assetObjects(new String(Files.readAllBytes(idx), StandardCharsets.UTF_8)); }
+                catch (IllegalArgumentException e) { continue; }
+                for (Map.Entry<String, Long> e : objs.entrySet()) {
+                    String h = e.getKey();
+                    Path f = objBase.resolve(h.substring(0, 2)).resolve(h);
+                    out.putIfAbsent(f, new Artifact(RESOURCES_URL + h.substring(0, 2) + "/" + h,
+                                                    f, h, e.getValue()));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void addChecked(Map<Path, Artifact> out, Artifact a) {
+        if (a.sha1 != null || a.size >= 0) out.putIfAbsent(a.path, a);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  HEX
+    // ═══════════════════════════════════════════════════════════════════
+    static String hex(byte[] b) {
+        char[] c = new char[b.length * 2];
+        for (int i = 0; i < b.length; i++) {
+            c[i * 2]     = Character.forDigit((b[i] >> 4) & 0xf, 16);
+            c[i * 2 + 1] = Character.forDigit(b[i] & 0xf, 16);
+        }
+        return new String(c);
+    }
+
+    static byte[] unhex(String s) {
+        byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++)
+            b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        return b;
+    }
 
     // ═══════════════════════════════════════════════════════════════════
     //  UUID
@@ -1327,84 +3270,834 @@ public class CatLauncher extends JFrame {
                 .digest(("OfflinePlayer:" + u).getBytes(StandardCharsets.UTF_8));
             h[6] = (byte) (h[6] & 0x0f | 0x30);
             h[8] = (byte) (h[8] & 0x3f | 0x80);
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < 16; i++) {
-                sb.append(String.format("%02x", h[i]));
-                if (i == 3 || i == 5 || i == 7 || i == 9) sb.append('-');
-            }
-            return sb.toString();
+            String x = hex(h);
+            return x.substring(0, 8) + "-" + x.substring(8, 12) + "-" + x.substring(12, 16) + "-"
+                 + x.substring(16, 20) + "-" + x.substring(20);
         } catch (Exception e) { return UUID.randomUUID().toString(); }
     }
 
     // ═══════════════════════════════════════════════════════════════════
     //  HTTP
     // ═══════════════════════════════════════════════════════════════════
-    String httpGet(String u) throws IOException {
-        HttpURLConnection c = (HttpURLConnection) URI.create(u).toURL().openConnection();
-        c.setRequestProperty("User-Agent", APP + "/" + VER);
-        c.setConnectTimeout(15000); c.setReadTimeout(30000);
-        try (InputStream in = c.getInputStream(); ByteArrayOutputStream b = new ByteArrayOutputStream()) {
-            byte[] buf = new byte[8192]; int n;
+    /**
+     * Launcher-wide transport. One java.net.http client (HTTP/2 with ALPN,
+     * HTTP/1.1 keep-alive fallback) is shared by every request so TLS
+     * sessions and connections are reused across libraries and assets.
+     * Tunable with -Dcatlauncher.http.* system properties.
+     */
+    static final class Http {
+        static final int CONNECT_TIMEOUT_MS = Integer.getInteger("catlauncher.http.connectTimeout", 15000);
+        static final int REQUEST_TIMEOUT_MS = Integer.getInteger("catlauncher.http.requestTimeout", 60000);
+        static final int MAX_PER_HOST       = Integer.getInteger("catlauncher.http.maxPerHost", 64);
+
+        static {
+            // Pool settings are read once when the JDK client class initialises
+            if (System.getProperty("jdk.httpclient.keepalive.timeout") == null)
+                System.setProperty("jdk.httpclient.keepalive.timeout", "120");
+        }
+
+        static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+            .build();
+
+        private static final ConcurrentHashMap<String, Semaphore> HOSTS = new ConcurrentHashMap<>();
+        private static final ThreadLocal<long[]> HOST_WAIT = ThreadLocal.withInitial(() -> new long[1]);
+
+        /** Time this thread has spent queued for per-host slots since the last call. */
+        static long takeHostWaitNanos() {
+            long[] w = HOST_WAIT.get();
+            long n = w[0];
+            w[0] = 0;
+            return n;
+        }
+
+        /** An open response. Closing it releases the body and the per-host slot. */
+        static final class Response implements Closeable {
+            final int code;
+            final HttpHeaders headers;
+            final InputStream body;
+            private final Semaphore slot;
+            private final AtomicBoolean closed = new AtomicBoolean();
+
+            Response(int code, HttpHeaders headers, InputStream body, Semaphore slot) {
+                this.code = code; this.headers = headers; this.body = body; this.slot = slot;
+            }
+
+            String header(String name) { return headers.firstValue(name).orElse(null); }
+
+            @Override public void close() throws IOException {
+                if (!closed.compareAndSet(false, true)) return;
+                try { body.close(); } finally { slot.release(); }
+            }
+        }
+
+        /**
+         * Sends a request and returns once headers arrive. Extra headers are
+         * name/value pairs; null values are skipped. Never throws on HTTP
+         * status — callers check {@link Response#code}.
+         */
+        static Response send(String method, String url, String... headers) throws IOException {
+            URI uri = URI.create(url);
+            Semaphore slot = HOSTS.computeIfAbsent(String.valueOf(uri.getHost()),
+                                                   h -> new Semaphore(MAX_PER_HOST));
+            HttpRequest.Builder rb = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(REQUEST_TIMEOUT_MS))
+                .header("User-Agent", APP + "/" + VER)
+                .method(method, HttpRequest.BodyPublishers.noBody());
+            for (int i = 0; i + 1 < headers.length; i += 2)
+                if (headers[i + 1] != null) rb.header(headers[i], headers[i + 1]);
+            long queued = System.nanoTime();
+            try { slot.acquire(); }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for " + uri.getHost());
+            } finally { HOST_WAIT.get()[0] += System.nanoTime() - queued; }
+            try {
+                HttpResponse<InputStream> r = CLIENT.send(rb.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+                return new Response(r.statusCode(), r.headers(), r.body(), slot);
+            } catch (InterruptedException e) {
+                slot.release();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted: " + url);
+            } catch (IOException | RuntimeException e) {
+                slot.release();
+                throw e;
+            }
+        }
+
+        /** A response status the caller could not use. */
+        static final class StatusException extends IOException {
+            final int code;
+            StatusException(int code, String url) { super("HTTP " + code + " for " + url); this.code = code; }
+
+            /** 4xx other than timeout / rate limit will answer the same way next time. */
+            boolean retryable() { return code / 100 != 4 || code == 408 || code == 429; }
+        }
+
+        /** GET that fails on any non-2xx status. */
+        static Response get(String url, String... headers) throws IOException {
+            Response r = send("GET", url, headers);
+            if (r.code / 100 != 2) {
+                r.close();
+                throw new StatusException(r.code, url);
+            }
+            return r;
+        }
+
+        static String getString(String url) throws IOException {
+            try (Response r = get(url)) { return readString(r.body); }
+        }
+
+        static String readString(InputStream in) throws IOException {
+            ByteArrayOutputStream b = new ByteArrayOutputStream();
+            byte[] buf = new byte[16384]; int n;
             while ((n = in.read(buf)) != -1) b.write(buf, 0, n);
-            return b.toString("UTF-8");
+            return new String(b.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    String httpGet(String u) throws IOException { return Http.getString(u); }
+
+    /** Result of a conditional GET; body is null when the server answered 304. */
+    static final class Fetched {
+        final boolean notModified;
+        final String body, etag, lastModified;
+        Fetched(boolean notModified, String body, String etag, String lastModified) {
+            this.notModified = notModified; this.body = body;
+            this.etag = etag; this.lastModified = lastModified;
         }
     }
 
-    void download(String u, Path d) throws IOException {
-        Files.createDirectories(d.getParent());
-        HttpURLConnection c = (HttpURLConnection) URI.create(u).toURL().openConnection();
-        c.setRequestProperty("User-Agent", APP + "/" + VER);
-        c.setConnectTimeout(15000); c.setReadTimeout(60000);
-        try (InputStream in = c.getInputStream(); OutputStream o = Files.newOutputStream(d)) {
-            byte[] buf = new byte[8192]; int n;
-            while ((n = in.read(buf)) != -1) o.write(buf, 0, n);
+    static Fetched httpGetIfChanged(String u, String etag, String lastModified) throws IOException {
+        try (Http.Response r = Http.send("GET", u,
+                "If-None-Match", etag, "If-Modified-Since", lastModified)) {
+            if (r.code == 304) return new Fetched(true, null, etag, lastModified);
+            if (r.code / 100 != 2) throw new Http.StatusException(r.code, u);
+            return new Fetched(false, Http.readString(r.body), r.header("ETag"), r.header("Last-Modified"));
+        }
+    }
+
+    /** Write via a sibling temp file and rename, so readers never see a half-written file. */
+    static void writeAtomic(Path dest, byte[] data) throws IOException {
+        Path tmp = dest.resolveSibling(dest.getFileName() + ".tmp");
+        Files.write(tmp, data);
+        try { Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        catch (AtomicMoveNotSupportedException e) { Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING); }
+    }
+
+    /**
+     * Downloads {@code url} into {@code dest}.part and renames it into place
+     * only after the size and sha1 (when known) check out, so {@code dest}
+     * existing always means complete. A leftover .part is resumed with a
+     * Range request; the .part.tag journal holds the ETag / Last-Modified
+     * sent as If-Range, so a changed file restarts instead of being stitched.
+     * The sha1 is computed while streaming; on resume only the existing
+     * prefix is read back. Network errors and 5xx are retried up to
+     * {@link #FETCH_ATTEMPTS} times; other 4xx fail at once. Returns the
+     * bytes transferred by the successful attempt.
+     */
+    static long fetch(String url, Path dest, String sha1, long size) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try { return fetchOnce(url, dest, sha1, size); }
+            catch (IOException e) {
+                // A bad hash already discarded the .part; a dropped link keeps it to resume
+                if (attempt >= FETCH_ATTEMPTS || e instanceof InterruptedIOException
+                    || e instanceof Http.StatusException && !((Http.StatusException) e).retryable()) throw e;
+                try { Thread.sleep(250L * attempt); }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted: " + url);
+                }
+            }
+        }
+    }
+
+    static final int FETCH_ATTEMPTS = 3;
+
+    static long fetchOnce(String url, Path dest, String sha1, long size) throws IOException {
+        Files.createDirectories(dest.getParent());
+        Path part = dest.resolveSibling(dest.getFileName() + ".part");
+        Path tag  = dest.resolveSibling(dest.getFileName() + ".part.tag");
+        long have = Files.exists(part) ? Files.size(part) : 0;
+        String validator = Files.exists(tag)
+            ? new String(Files.readAllBytes(tag), StandardCharsets.UTF_8).trim() : null;
+        if (validator != null && validator.isEmpty()) validator = null;
+        // Only resume when we can prove the bytes on disk belong to this file
+        if (have > 0 && (validator == null && sha1 == null || size > 0 && have > size)) have = 0;
+
+        MessageDigest md = sha1 != null ? sha1Digest() : null;
+        long got = 0;
+        if (size < 0 || have < size) {
+            try (Http.Response r = Http.send("GET", url,
+                    "Range",    have > 0 ? "bytes=" + have + "-" : null,
+                    "If-Range", have > 0 ? validator : null)) {
+                boolean append;
+                if (r.code == 206 && have > 0 && rangeStart(r.header("Content-Range")) == have) append = true;
+                else if (r.code == 200) append = false;
+                else if (r.code == 416 && have > 0) append = true;   // nothing left to send
+                else throw new Http.StatusException(r.code, url);
+                if (!append) have = 0;
+
+                String v = r.header("ETag") != null ? r.header("ETag") : r.header("Last-Modified");
+                if (!append || validator == null) {
+                    if (v != null) Files.write(tag, v.getBytes(StandardCharsets.UTF_8));
+                    else Files.deleteIfExists(tag);
+                }
+                if (md != null && have > 0) digestFile(md, part);
+                if (r.code != 416) {
+                    try (OutputStream o = Files.newOutputStream(part, StandardOpenOption.CREATE,
+                            append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE)) {
+                        byte[] buf = new byte[32768]; int n;
+                        while ((n = r.body.read(buf)) != -1) {
+                            o.write(buf, 0, n);
+                            if (md != null) md.update(buf, 0, n);
+                            got += n;
+                        }
+                    }
+                }
+            }
+        } else if (md != null) {
+            digestFile(md, part);
+        }
+
+        long len = Files.size(part);
+        String bad = size >= 0 && len != size ? "size " + len + " != " + size
+                   : md != null && !hex(md.digest()).equalsIgnoreCase(sha1) ? "sha1 mismatch"
+                   : null;
+        if (bad != null) {
+            Files.deleteIfExists(part);
+            Files.deleteIfExists(tag);
+            throw new IOException(bad + " for " + dest.getFileName());
+        }
+        try { Files.move(part, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        catch (AtomicMoveNotSupportedException e) { Files.move(part, dest, StandardCopyOption.REPLACE_EXISTING); }
+        Files.deleteIfExists(tag);
+        return got;
+    }
+
+    /** First byte offset of a "bytes a-b/n" Content-Range header, or -1. */
+    static long rangeStart(String cr) {
+        if (cr == null || !cr.startsWith("bytes ")) return -1;
+        int dash = cr.indexOf('-');
+        try { return dash > 6 ? Long.parseLong(cr.substring(6, dash).trim()) : -1; }
+        catch (NumberFormatException e) { return -1; }
+    }
+
+    static MessageDigest sha1Digest() {
+        try { return MessageDigest.getInstance("SHA-1"); }
+        catch (java.security.NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+    }
+
+    static void digestFile(MessageDigest md, Path f) throws IOException {
+        try (InputStream in = Files.newInputStream(f)) {
+            byte[] buf = new byte[65536]; int n;
+            while ((n = in.read(buf)) != -1) md.update(buf, 0, n);
         }
     }
 
     // ═══════════════════════════════════════════════════════════════════
-    //  JSON HELPERS
+    //  LAN MIRROR — serve this install to other launchers, or fetch from one
+    // ═══════════════════════════════════════════════════════════════════
+    static final int MIRROR_PORT = 25590;
+    static final long MIRROR_RETRY_MS = 60_000;
+
+    /**
+     * Base URL of another launcher's {@link MirrorServer}, tried before each
+     * artifact's own URLs; null for none. Only artifacts with a sha1 go
+     * through it, so a stale or broken mirror costs a request, never a
+     * corrupt file. Set from -Dcatlauncher.mirror, the profile or --mirror.
+     */
+    static volatile String mirror = mirrorBase(System.getProperty("catlauncher.mirror"));
+    /** A mirror that refused or timed out a connection is skipped until then. */
+    static volatile long mirrorDownUntil;
+
+    /** "host", "host:port" or "http://host:port/..." as a base URL; null if blank or unparsable. */
+    static String mirrorBase(String s) {
+        if (s == null || (s = s.trim()).isEmpty()) return null;
+        try {
+            URI u = URI.create(s.contains("://") ? s : "http://" + s);
+            if (u.getHost() == null) return null;
+            return u.getScheme() + "://" + u.getHost() + ":" + (u.getPort() < 0 ? MIRROR_PORT : u.getPort()) + "/";
+        } catch (IllegalArgumentException e) { return null; }
+    }
+
+    /** Where the mirror would serve {@code a}, or null if it should not be asked. */
+    static String mirrorUrl(Artifact a) {
+        String base = mirror;
+        if (base == null || a.sha1 == null || now() < mirrorDownUntil) return null;
+        String rel = MirrorServer.relative(a.path);
+        return rel == null ? null : base + rel;
+    }
+
+    /** Starts sharing this install on {@code port} (0 for any free port); close the result to stop. */
+    MirrorServer serveMirror(int port) throws IOException {
+        MirrorServer s = new MirrorServer(port);
+        log("Mirror: sharing libraries, versions and asset objects on port " + s.port());
+        return s;
+    }
+
+    /**
+     * Minimal HTTP/1.1 file server over LIB_DIR, VER_DIR and assets/objects,
+     * laid out as /libraries/..., /versions/... and /objects/... — the same
+     * relative paths every install uses. GET and HEAD only; single byte
+     * ranges, honouring If-Range, so an interrupted peer resumes; keep-alive.
+     * Bodies are sent with FileChannel.transferTo, which lets the kernel
+     * copy file pages straight to the socket. One task per connection on
+     * {@link #newTaskExecutor}, at most {@link #MAX_CONNECTIONS} at a time;
+     * idle connections close after {@link #IDLE_MS}.
+     */
+    static final class MirrorServer implements Closeable {
+        static final int MAX_CONNECTIONS = 256;
+        static final int IDLE_MS = 30_000;
+        static final String[] NAMES = { "libraries", "versions", "objects" };
+
+        private final ServerSocketChannel server;
+        private final ExecutorService exec = newTaskExecutor("mirror");
+        private final Semaphore slots = new Semaphore(MAX_CONNECTIONS);
+        private final AtomicLong requests = new AtomicLong(), sent = new AtomicLong();
+
+        MirrorServer(int port) throws IOException {
+            server = ServerSocketChannel.open();
+            try { server.bind(new InetSocketAddress(port), 128); }
+            catch (IOException e) { server.close(); exec.shutdown(); throw e; }
+            Thread t = new Thread(this::acceptLoop, "mirror-accept");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        int port() throws IOException { return ((InetSocketAddress) server.getLocalAddress()).getPort(); }
+
+        String metrics() { return requests.get() + " requests, " + sent.get() / (1024 * 1024) + " MB sent"; }
+
+        /** Stops accepting and interrupts every connection, which closes its channel. */
+        @Override public void close() throws IOException {
+            server.close();
+            exec.shutdownNow();
+        }
+
+        private void acceptLoop() {
+            for (long backoff = 10; server.isOpen(); ) {
+                SocketChannel c;
+                try { c = server.accept(); backoff = 10; }
+                catch (ClosedChannelException e) { return; }
+                catch (IOException e) {                      // e.g. out of descriptors: give them time to free
+                    try { Thread.sleep(backoff); } catch (InterruptedException ie) { return; }
+                    backoff = Math.min(backoff * 2, 1000);
+                    continue;
+                }
+                if (!slots.tryAcquire()) { closeQuietly(c); continue; }
+                try { exec.execute(() -> serve(c)); }
+                catch (RejectedExecutionException e) { closeQuietly(c); slots.release(); }
+            }
+        }
+
+        private void serve(SocketChannel c) {
+            try (SocketChannel ch = c) {
+                ch.socket().setSoTimeout(IDLE_MS);
+                ch.socket().setTcpNoDelay(true);
+                InputStream in = new BufferedInputStream(ch.socket().getInputStream());
+                for (String line; (line = readLine(in, false)) != null; ) {
+                    if (line.isEmpty()) continue;                // stray CRLF between requests
+                    String[] req = line.split(" ");
+                    Map<String, String> h = new HashMap<>();
+                    for (String l; !(l = readLine(in, true)).isEmpty(); ) {
+                        int colon = l.indexOf(':');
+                        if (colon > 0 && h.size() < 64)
+                            h.put(l.substring(0, colon).trim().toLowerCase(Locale.ROOT), l.substring(colon + 1).trim());
+                    }
+                    if (req.length != 3) { send(ch, "400 Bad Request", false, "Content-Length", "0"); return; }
+                    boolean keep = "HTTP/1.1".equals(req[2]) && !"close".equalsIgnoreCase(h.get("connection"));
+                    if (!respond(ch, req[0], req[1], h, keep)) return;
+                }
+            } catch (IOException e) {
+                // peer went away or idled out
+            } finally { slots.release(); }
+        }
+
+        /** Answers one request; false if the connection closes after it. */
+        private boolean respond(SocketChannel ch, String method, String target,
+                                Map<String, String> h, boolean keep) throws IOException {
+            requests.incrementAndGet();
+            boolean head = method.equals("HEAD");
+            if (!head && !method.equals("GET")) {
+                send(ch, "405 Method Not Allowed", keep, "Allow", "GET, HEAD", "Content-Length", "0");
+                return keep;
+            }
+            Path f = resolve(target);
+            if (f == null) { send(ch, "404 Not Found", keep, "Content-Length", "0"); return keep; }
+            try (FileChannel fc = FileChannel.open(f, StandardOpenOption.READ)) {
+                long len = fc.size(), from = 0, to = len;
+                String etag = "\"" + Long.toHexString(len) + "-"
+                            + Long.toHexString(Files.getLastModifiedTime(f).toMillis()) + "\"";
+                String range = h.get("range"), ifRange = h.get("if-range");
+                boolean partial = false;
+                if (range != null && (ifRange == null || ifRange.equals(etag))) {
+                    long[] r = byteRange(range, len);
+                    if (r != null && r.length == 0) {
+                        send(ch, "416 Range Not Satisfiable", keep, "Content-Range", "bytes */" + len,
+                             "Content-Length", "0");
+                        return keep;
+                    }
+                    if (r != null) { from = r[0]; to = r[1]; partial = true; }
+                }
+                send(ch, partial ? "206 Partial Content" : "200 OK", keep,
+                     "Content-Type", "application/octet-stream",
+                     "Content-Length", Long.toString(to - from),
+                     "Content-Range", partial ? "bytes " + from + "-" + (to - 1) + "/" + len : null,
+                     "Accept-Ranges", "bytes",
+                     "ETag", etag);
+                if (head) return keep;
+                for (long pos = from; pos < to; ) {
+                    long n = fc.transferTo(pos, to - pos, ch);
+                    if (n <= 0) throw new EOFException("file shrank: " + f);
+                    pos += n;
+                    sent.addAndGet(n);
+                }
+            }
+            return keep;
+        }
+
+        /** Status line and headers in one write; header pairs with a null value are skipped. */
+        private static void send(SocketChannel ch, String status, boolean keep, String... headers) throws IOException {
+            StringBuilder sb = new StringBuilder(256).append("HTTP/1.1 ").append(status).append("\r\n")
+                .append("Server: ").append(APP).append('/').append(VER).append("\r\n");
+            for (int i = 0; i + 1 < headers.length; i += 2)
+                if (headers[i + 1] != null) sb.append(headers[i]).append(": ").append(headers[i + 1]).append("\r\n");
+            sb.append("Connection: ").append(keep ? "keep-alive" : "close").append("\r\n\r\n");
+            ByteBuffer b = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+            while (b.hasRemaining()) ch.write(b);
+        }
+
+        /**
+         * One CRLF- or LF-terminated line of at most 8 KB. End of stream
+         * before a request starts is null; inside one ({@code mid}) it throws.
+         */
+        private static String readLine(InputStream in, boolean mid) throws IOException {
+            StringBuilder sb = new StringBuilder(64);
+            for (int c; (c = in.read()) != '\n'; ) {
+                if (c < 0) {
+                    if (mid || sb.length() > 0) throw new EOFException("request cut short");
+                    return null;
+                }
+                if (sb.length() >= 8192) throw new IOException("header line too long");
+                if (c != '\r') sb.append((char) c);
+            }
+            return sb.toString();
+        }
+
+        /** [from, to) for a single "bytes=" range: null to ignore it and send everything, empty if unsatisfiable. */
+        static long[] byteRange(String spec, long len) {
+            if (!spec.startsWith("bytes=") || spec.indexOf(',') >= 0) return null;
+            int dash = spec.indexOf('-', 6);
+            if (dash < 0) return null;
+            try {
+                String a = spec.substring(6, dash).trim(), b = spec.substring(dash + 1).trim();
+                long from, to;
+                if (a.isEmpty()) {                                // suffix: the last b bytes
+                    long n = Long.parseLong(b);
+                    from = Math.max(0, len - n);
+                    to = n > 0 ? len : from;
+                } else {
+                    from = Long.parseLong(a);
+                    long last = b.isEmpty() ? Long.MAX_VALUE - 1 : Long.parseLong(b);
+                    if (from < 0 || last < from) return null;
+                    to = Math.min(len, last + 1);
+                }
+                return from < to ? new long[]{ from, to } : new long[0];
+            } catch (NumberFormatException e) { return null; }
+        }
+
+        private static Path[] roots() {
+            return new Path[]{ LIB_DIR.normalize(), VER_DIR.normalize(), ASS_DIR.resolve("objects").normalize() };
+        }
+
+        /** The finished file a request path names, or null if it is not one this server shares. */
+        static Path resolve(String target) {
+            try {
+                String p = new URI(target).getPath();
+                Path[] roots = roots();
+                for (int i = 0; p != null && i < NAMES.length; i++) {
+                    String pre = "/" + NAMES[i] + "/";
+                    if (!p.startsWith(pre)) continue;
+                    Path f = roots[i].resolve(p.substring(pre.length())).normalize();
+                    if (!f.startsWith(roots[i]) || f.equals(roots[i]) || leftover(f.getFileName().toString())
+                        || !Files.isRegularFile(f)) return null;
+                    return f;
+                }
+            } catch (URISyntaxException | InvalidPathException e) { /* not a path we serve */ }
+            return null;
+        }
+
+        /** The URL path (no leading slash, escaped) under which a mirror serves {@code f}, or null. */
+        static String relative(Path f) {
+            Path[] roots = roots();
+            f = f.normalize();
+            for (int i = 0; i < NAMES.length; i++) {
+                if (!f.startsWith(roots[i]) || f.equals(roots[i])) continue;
+                StringBuilder sb = new StringBuilder(NAMES[i]);
+                for (Path seg : roots[i].relativize(f)) sb.append('/').append(seg);
+                try { return new URI(null, null, sb.toString(), null).getRawPath(); }
+                catch (URISyntaxException e) { return null; }
+            }
+            return null;
+        }
+
+        private static void closeQuietly(Closeable c) {
+            try { c.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    //  PLATFORM
     // ═══════════════════════════════════════════════════════════════════
     static String osName() {
         String o = System.getProperty("os.name", "").toLowerCase();
         return o.contains("win") ? "windows" : o.contains("mac") ? "osx" : "linux";
     }
 
-    String js(String j, String k) {
-        Matcher m = Pattern.compile("\"" + Pattern.quote(k) + "\"\\s*:\\s*\"([^\"]+)\"").matcher(j);
-        return m.find() ? m.group(1) : null;
-    }
+    // ═══════════════════════════════════════════════════════════════════
+    //  JSON — single-pass tokenizer, no dependencies
+    // ═══════════════════════════════════════════════════════════════════
+    /**
+     * Reads a JSON document once into a tree of LinkedHashMap / ArrayList /
+     * String / Long / Double / Boolean / null. Every lookup afterwards is a
+     * hash hit on the tree instead of another regex scan over the text.
+     */
+    static final class Json {
+        private final String s;
+        private int i;
+
+        private Json(String s) { this.s = s; }
+
+        static Object parse(String s) {
+            Json p = new Json(s);
+            p.ws();
+            Object v = p.value();
+            p.ws();
+            if (p.i < s.length()) throw p.err("trailing data");
+            return v;
+        }
+
+        // ─── lookups ────────────────────────────────────────────────
+        /** Follows object keys; null if any step is missing or not an object. */
+        static Object at(Object n, String... path) {
+            for (String k : path) {
+                if (!(n instanceof Map)) return null;
+                n = ((Map<?, ?>) n).get(k);
+            }
+            return n;
+        }
+
+        static String str(Object n, String... path) {
+            Object v = at(n, path);
+            return v instanceof String ? (String) v : null;
+        }
+
+        static long num(Object n, long def, String... path) {
+            Object v = at(n, path);
+            return v instanceof Number ? ((Number) v).longValue() : def;
+        }
 
-    String jn(String j, String p, String k, String d) {
-        int pi = j.indexOf("\"" + p + "\""); if (pi < 0) return d;
-        int os = j.indexOf('{', pi);         if (os < 0) return d;
-        int dep = 0, oe = os;
-        for (int i = os; i < j.length(); i++) {
-            if (j.charAt(i) == '{') dep++;
-            else if (j.charAt(i) == '}') { dep--; if (dep == 0) { oe = i; break; } }
+        @SuppressWarnings("unchecked")
+        static Map<String, Object> obj(Object n, String... path) {
+            Object v = at(n, path);
+            return v instanceof Map ? (Map<String, Object>) v : Collections.emptyMap();
         }
-        String r = js(j.substring(os, oe + 1), k);
-        return r != null ? r : d;
+
+        @SuppressWarnings("unchecked")
+        static List<Object> arr(Object n, String... path) {
+            Object v = at(n, path);
+            return v instanceof List ? (List<Object>) v : Collections.emptyList();
+        }
+
+        // ─── tokenizer ──────────────────────────────────────────────
+        private Object value() {
+            if (i >= s.length()) throw err("unexpected end");
+            switch (s.charAt(i)) {
+                case '{': return object();
+                case '[': return array();
+                case '"': return string();
+                case 't': literal("true");  return Boolean.TRUE;
+                case 'f': literal("false"); return Boolean.FALSE;
+                case 'n': literal("null");  return null;
+                default:  return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            i++; ws();
+            if (i < s.length() && s.charAt(i) == '}') { i++; return m; }
+            while (true) {
+                ws();
+                if (i >= s.length() || s.charAt(i) != '"') throw err("expected key");
+                String k = string();
+                ws(); expect(':'); ws();
+                m.put(k, value());
+                ws();
+                if (i >= s.length()) throw err("unterminated object");
+                char c = s.charAt(i++);
+                if (c == '}') return m;
+                if (c != ',') throw err("expected ',' or '}'");
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> a = new ArrayList<>();
+            i++; ws();
+            if (i < s.length() && s.charAt(i) == ']') { i++; return a; }
+            while (true) {
+                ws();
+                a.add(value());
+                ws();
+                if (i >= s.length()) throw err("unterminated array");
+                char c = s.charAt(i++);
+                if (c == ']') return a;
+                if (c != ',') throw err("expected ',' or ']'");
+            }
+        }
+
+        private String string() {
+            int start = ++i;
+            // Fast path: most strings have no escapes — one substring, no copy loop
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (c == '"') return s.substring(start, i++);
+                if (c == '\\') break;
+                i++;
+            }
+            StringBuilder sb = new StringBuilder(s.substring(start, i));
+            while (i < s.length()) {
+                char c = s.charAt(i++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') { sb.append(c); continue; }
+                if (i >= s.length()) break;
+                char e = s.charAt(i++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 > s.length()) throw err("bad \\u escape");
+                        sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                        i += 4; break;
+                    default:  sb.append(e); // \" \\ \/
+                }
+            }
+            throw err("unterminated string");
+        }
+
+        private Object number() {
+            int start = i;
+            boolean frac = false;
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (c >= '0' && c <= '9' || c == '-' || c == '+') i++;
+                else if (c == '.' || c == 'e' || c == 'E') { frac = true; i++; }
+                else break;
+            }
+            if (start == i) throw err("unexpected '" + s.charAt(i) + "'");
+            String t = s.substring(start, i);
+            try {
+                if (!frac && t.length() < 19) return Long.parseLong(t);
+                return Double.parseDouble(t);
+            } catch (NumberFormatException e) { throw err("bad number " + t); }
+        }
+
+        private void literal(String w) {
+            if (!s.startsWith(w, i)) throw err("expected " + w);
+            i += w.length();
+        }
+
+        private void expect(char c) {
+            if (i >= s.length() || s.charAt(i) != c) throw err("expected '" + c + "'");
+            i++;
+        }
+
+        private void ws() {
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (c == ' ' || c == '\n' || c == '\r' || c == '\t') i++;
+                else break;
+            }
+        }
+
+        private IllegalArgumentException err(String m) {
+            return new IllegalArgumentException("JSON: " + m + " at offset " + i);
+        }
+    }}
+
+// ═══════════════════════════════════════════════════════════════════════
+//  HEADLESS CLI — the same engine, no window
+// ═══════════════════════════════════════════════════════════════════════
+/**
+ * For scripts, CI smoke tests and machines without a display. Run it as
+ * {@code java -jar CatLauncher.jar [--headless] <command>}; the jar's entry
+ * point is this class, so AWT is never loaded. {@code java CatLauncher
+ * [--headless] <command>} forwards here too.
+ * Output goes to stdout and logs/launcher.log. The exit code is 0 on
+ * success, 1 on failure, 2 on bad usage, and the game's own exit code for
+ * launch.
+ */
+final class CatLauncherCli {
+    static final String USAGE = String.join("\n",
+        "usage: CatLauncherCli <command> [args]     (no command: open the launcher window)",
+        "  prepare <version>...        download everything the versions need, launch nothing",
+        "  launch <version> [--user NAME] [--ram MB] [--java PATH]",
+        "  verify                      re-hash installed files, remove corrupt ones",
+        "  selfcheck                   run the launcher's built-in resolver checks",
+        "  versions [TYPE]             list release|snapshot|old_beta|old_alpha|all (default release)",
+        "  serve [PORT]                share libraries, versions and assets on the LAN (default "
+            + CatLauncherEngine.MIRROR_PORT + ")",
+        "  --mirror HOST[:PORT]        with prepare/launch: try that launcher's share before Mojang");
+
+    /** The jar's entry point: a command runs here without AWT, no command opens the window. */
+    public static void main(String[] args) {
+        if (args.length == 0) { CatLauncher.main(args); return; }
+        System.exit(run(args));
     }
 
-    String jdn(String j, String a, String b, String k) {
-        int ai = j.indexOf("\"" + a + "\""); if (ai < 0) return null;
-        int ao = j.indexOf('{', ai);         if (ao < 0) return null;
-        int dep = 0, ae = ao;
-        for (int i = ao; i < j.length(); i++) {
-            if (j.charAt(i) == '{') dep++;
-            else if (j.charAt(i) == '}') { dep--; if (dep == 0) { ae = i; break; } }
+    /** Callers that only want {@link CatLauncherEngine#manifest} filled in. */
+    static final CatLauncherEngine.Publisher QUIET = new CatLauncherEngine.Publisher() {
+        public void published(CatLauncherEngine.VersionManifest vm, boolean first) {}
+    };
+
+    static int run(String[] args) {
+        if (args.length > 0 && args[0].equals("--headless")) args = Arrays.copyOfRange(args, 1, args.length);
+        if (args.length == 0) { System.err.println(USAGE); return 2; }
+        CatLauncherEngine.initDirs();
+        CatLauncherEngine engine = new CatLauncherEngine(new CatLauncherEngine.Listener() {
+            public void line(String text)   { System.out.println(text); }
+            public void status(String text) {}
+            public void progress(int pct)   {}
+        });
+        List<String> rest = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        String mirror = option(rest, "--mirror", null);
+        if (mirror != null) CatLauncherEngine.mirror = CatLauncherEngine.mirrorBase(mirror);
+        try {
+            switch (args[0]) {
+                case "prepare":
+                    if (rest.isEmpty()) break;
+                    needManifest(engine, rest);
+                    return engine.install(rest) ? 0 : 1;
+                case "launch": {
+                    String user = option(rest, "--user", "Player"), ram = option(rest, "--ram", "2048");
+                    String java = option(rest, "--java", "java");
+                    if (rest.size() != 1) break;
+                    needManifest(engine, rest);
+                    return engine.launchGame(user, rest.get(0), ram, java);
+                }
+                case "verify":
+                    if (!rest.isEmpty()) break;
+                    engine.loadCachedManifest(QUIET);
+                    return engine.verifyInstallation() == 0 ? 0 : 1;
+                case "selfcheck": {
+                    if (!rest.isEmpty()) break;
+                    List<String> bad = CatLauncherEngine.selfCheck();
+                    for (String b : bad) System.err.println("FAIL " + b);
+                    System.out.println(bad.isEmpty() ? "selfcheck: ok" : "selfcheck: " + bad.size() + " failed");
+                    return bad.isEmpty() ? 0 : 1;
+                }
+                case "versions": {
+                    if (rest.size() > 1) break;
+                    if (!engine.loadCachedManifest(QUIET))
+                        engine.revalidateManifest(QUIET, false);
+                    if (engine.manifest == null || engine.manifest.ids("all").isEmpty()) {
+                        System.err.println("versions failed: no manifest (offline and nothing cached)");
+                        return 1;
+                    }
+                    for (String id : engine.manifest.ids(rest.isEmpty() ? "release" : rest.get(0)))
+                        System.out.println(id);
+                    return 0;
+                }
+                case "serve": {
+                    if (rest.size() > 1) break;
+                    CatLauncherEngine.MirrorServer server = engine.serveMirror(
+                        rest.isEmpty() ? CatLauncherEngine.MIRROR_PORT : Integer.parseInt(rest.get(0)));
+                    // Runs until the process is stopped; the hook is the only way out
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        engine.log("Mirror stopped: " + server.metrics());
+                        engine.launcherLog.close();
+                    }));
+                    Thread.currentThread().join();
+                    return 0;
+                }
+                default:
+            }
+            System.err.println(USAGE);
+            return 2;
+        } catch (Exception e) {
+            System.err.println(args[0] + " failed: " + e.getMessage());
+            return 1;
+        } finally {
+            engine.launcherLog.close();
         }
-        return jn(j.substring(ao, ae + 1), b, k, null);
     }
 
-    String clf(String j, String c, String f) {
-        int ci = j.indexOf("\"" + c + "\""); if (ci < 0) return null;
-        int os = j.indexOf('{', ci);         if (os < 0) return null;
-        int dep = 0, oe = os;
-        for (int i = os; i < j.length(); i++) {
-            if (j.charAt(i) == '{') dep++;
-            else if (j.charAt(i) == '}') { dep--; if (dep == 0) { oe = i; break; } }
+    /** The cached manifest, plus a network refresh only if a version is neither installed nor listed. */
+    static void needManifest(CatLauncherEngine engine, List<String> vids) {
+        boolean cached = engine.loadCachedManifest(QUIET);
+        for (String vid : vids) {
+            boolean local = Files.exists(CatLauncherEngine.VER_DIR.resolve(vid).resolve(vid + ".json"));
+            if (!local && engine.manifest.url(vid) == null) {
+                engine.revalidateManifest(QUIET, cached);
+                return;
+            }
         }
-        return js(j.substring(os, oe + 1), f);
+    }
+
+    /** Removes {@code --name value} from {@code args} and returns the value, or {@code def}. */
+    static String option(List<String> args, String name, String def) {
+        int i = args.indexOf(name);
+        if (i < 0 || i + 1 >= args.size()) return def;
+        String v = args.get(i + 1);
+        args.subList(i, i + 2).clear();
+        return v;
     }
 }